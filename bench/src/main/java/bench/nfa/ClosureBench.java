@@ -0,0 +1,62 @@
+package bench.nfa;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fa.nfa.NFA;
+import fa.nfa.NFAState;
+
+/**
+ * eClosure on epsilon-heavy chains and isDFA on large automata.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClosureBench {
+
+	@Param({"100", "10000"})
+	public int states;
+
+	private NFA chain;
+	private NFAState head;
+	private NFAState middle;
+	private NFA wide;
+
+	@Setup
+	public void setup() {
+		chain = Workloads.epsilonChain(states);
+		head = chain.getState("s0");
+		middle = chain.getState("s" + states / 2);
+		wide = Workloads.wide(states, "abcd", 1, 5);
+	}
+
+	@Benchmark
+	public Set<NFAState> eClosureWholeChain() {
+		return chain.eClosure(head);
+	}
+
+	@Benchmark
+	public Set<NFAState> eClosureHalfChain() {
+		return chain.eClosure(middle);
+	}
+
+	@Benchmark
+	public boolean isDFA() {
+		return wide.isDFA();
+	}
+}
@@ -0,0 +1,75 @@
+package bench.nfa;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fa.nfa.NFA;
+
+/**
+ * Bulk addState / addTransition through the public builder calls. With
+ * constant time name lookups the time per state should stay flat as the
+ * automaton grows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConstructionBench {
+
+	@Param({"1000", "10000", "100000"})
+	public int states;
+
+	private String[] names;
+	private Set<String>[] next;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		names = new String[states];
+		next = new Set[states];
+		for (int i = 0; i < states; i++) {
+			names[i] = "s" + i;
+		}
+		for (int i = 0; i < states - 1; i++) {
+			next[i] = Set.of(names[i + 1]);
+		}
+	}
+
+	@Benchmark
+	public NFA addStates() {
+		NFA nfa = new NFA();
+		for (String name : names) {
+			nfa.addState(name);
+		}
+		return nfa;
+	}
+
+	/**
+	 * builds s0 -0-> s1 -e-> s2 -0-> ... with every state looked up by name
+	 */
+	@Benchmark
+	public NFA addStatesAndTransitions() {
+		NFA nfa = addStates();
+		nfa.addSigma('0');
+		nfa.setStart(names[0]);
+		nfa.setFinal(names[states - 1]);
+		for (int i = 0; i < states - 1; i++) {
+			nfa.addTransition(names[i], next[i], i % 2 == 0 ? '0' : 'e');
+		}
+		return nfa;
+	}
+}
@@ -0,0 +1,27 @@
+package bench.nfa;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected on the command line (all by default) with the
+ * gc profiler attached, so every result reports ops/s next to the
+ * allocation rate (gc.alloc.rate.norm is bytes per operation).
+ */
+public class Main {
+
+	public static void main(String[] args) throws Exception {
+		try {
+			new Runner(new OptionsBuilder()
+					.parent(new CommandLineOptions(args))
+					.addProfiler(GCProfiler.class)
+					.build()).run();
+		} catch (RunnerException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
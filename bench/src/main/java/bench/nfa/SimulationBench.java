@@ -0,0 +1,78 @@
+package bench.nfa;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fa.nfa.NFA;
+
+/**
+ * accepts and maxCopies on long inputs over the generated workloads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulationBench {
+
+	@Param({"blowup8", "blowup16", "epsilonChain", "wideAscii", "wideUnicode"})
+	public String workload;
+
+	@Param({"1000", "100000"})
+	public int length;
+
+	private NFA nfa;
+	private String input;
+
+	@Setup
+	public void setup() {
+		switch (workload) {
+		case "blowup8":
+			nfa = Workloads.blowup(8);
+			input = Workloads.input("ab", length, 1);
+			break;
+		case "blowup16":
+			nfa = Workloads.blowup(16);
+			input = Workloads.input("ab", length, 1);
+			break;
+		case "epsilonChain":
+			nfa = Workloads.epsilonChain(200);
+			input = "a".repeat(length);
+			break;
+		case "wideAscii":
+			nfa = Workloads.wide(300, Workloads.ASCII, 1, 3);
+			input = Workloads.input(Workloads.ASCII, length, 4);
+			break;
+		case "wideUnicode":
+			nfa = Workloads.wide(300, Workloads.unicodeAlphabet(500), 1, 3);
+			input = Workloads.input(Workloads.unicodeAlphabet(500), length, 4);
+			break;
+		default:
+			throw new IllegalArgumentException(workload);
+		}
+		// build the cached engines outside the measurement
+		nfa.accepts("");
+	}
+
+	@Benchmark
+	public boolean accepts() {
+		return nfa.accepts(input);
+	}
+
+	@Benchmark
+	public int maxCopies() {
+		return nfa.maxCopies(input);
+	}
+}
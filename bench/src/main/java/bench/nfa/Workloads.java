@@ -0,0 +1,113 @@
+package bench.nfa;
+
+import java.util.Random;
+import java.util.Set;
+
+import fa.nfa.NFA;
+
+/**
+ * Generated automata and inputs shared by the benchmarks.
+ */
+public final class Workloads {
+
+	/** 35 distinct ASCII letters and digits, without 'e', which labels epsilon edges */
+	public static final String ASCII = "abcdfghijklmnopqrstuvwxyz0123456789";
+
+	private Workloads() {
+	}
+
+	/**
+	 * The classic blowup family (a|b)*a(a|b)^n, its DFA needs 2^(n+1) states
+	 * and its active set grows to n + 2 states.
+	 */
+	public static NFA blowup(int n) {
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		nfa.addSigma('b');
+		for (int i = 0; i <= n + 1; i++) {
+			nfa.addState("s" + i);
+		}
+		nfa.setStart("s0");
+		nfa.setFinal("s" + (n + 1));
+		nfa.addTransition("s0", Set.of("s0"), 'b');
+		nfa.addTransition("s0", Set.of("s0", "s1"), 'a');
+		for (int i = 1; i <= n; i++) {
+			nfa.addTransition("s" + i, Set.of("s" + (i + 1)), 'a');
+			nfa.addTransition("s" + i, Set.of("s" + (i + 1)), 'b');
+		}
+		return nfa;
+	}
+
+	/**
+	 * A loop on 'a' whose states are joined by long epsilon chains, every
+	 * step has to take the closure of n states.
+	 */
+	public static NFA epsilonChain(int n) {
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		for (int i = 0; i < n; i++) {
+			nfa.addState("s" + i);
+		}
+		nfa.setStart("s0");
+		nfa.setFinal("s" + (n - 1));
+		for (int i = 0; i < n - 1; i++) {
+			nfa.addTransition("s" + i, Set.of("s" + (i + 1)), 'e');
+		}
+		nfa.addTransition("s" + (n - 1), Set.of("s0"), 'a');
+		return nfa;
+	}
+
+	/**
+	 * Random automaton over a wide alphabet, about fanOut targets per state
+	 * and symbol.
+	 * @throws IllegalArgumentException if alphabet repeats a char or holds 'e'
+	 */
+	public static NFA wide(int states, String alphabet, int fanOut, long seed) {
+		if (alphabet.indexOf('e') >= 0 || alphabet.chars().distinct().count() != alphabet.length()) {
+			throw new IllegalArgumentException("the alphabet must be distinct chars without 'e'");
+		}
+		Random rnd = new Random(seed);
+		NFA nfa = new NFA();
+		for (char c : alphabet.toCharArray()) {
+			nfa.addSigma(c);
+		}
+		for (int i = 0; i < states; i++) {
+			nfa.addState("s" + i);
+		}
+		nfa.setStart("s0");
+		for (int i = 0; i < states; i += 7) {
+			nfa.setFinal("s" + i);
+		}
+		for (int i = 0; i < states; i++) {
+			for (char c : alphabet.toCharArray()) {
+				for (int k = 0; k < fanOut; k++) {
+					nfa.addTransition("s" + i, Set.of("s" + rnd.nextInt(states)), c);
+				}
+			}
+		}
+		return nfa;
+	}
+
+	/**
+	 * @return the characters from 0x100 on, a Unicode alphabet of the given size
+	 */
+	public static String unicodeAlphabet(int size) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			sb.append((char) (0x100 + i));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return a random string over chars
+	 */
+	public static String input(String chars, int length, long seed) {
+		Random rnd = new Random(seed);
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(chars.charAt(rnd.nextInt(chars.length())));
+		}
+		return sb.toString();
+	}
+}
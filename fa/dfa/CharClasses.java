@@ -0,0 +1,132 @@
+package fa.dfa;
+
+import java.util.Arrays;
+
+/**
+ * A partition of an alphabet into classes of characters that behave the
+ * same in every state, so transition tables need one column per class
+ * instead of one per character.
+ *
+ * The char to class lookup is a two level table of 256 pages of 256 entries,
+ * pages holding no character of the alphabet are shared, so a few hundred
+ * scattered Unicode characters cost a few KB instead of a 64K entry array.
+ * Immutable and safe to share between threads.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class CharClasses {
+    private static final int[] EMPTY_PAGE = new int[256];
+
+    static {
+        Arrays.fill(EMPTY_PAGE, -1);
+    }
+
+    private final int[][] pages; // [c >>> 8][c & 0xFF] -> class or -1
+    private final char[] members; // the characters grouped by class
+    private final int[] memberStart; // class -> offset into members, one extra entry at the end
+
+    /**
+     * @param chars, the alphabet, no duplicates
+     * @param classOf, the class of every char of chars, the classes used
+     * must be exactly 0..k-1 for some k
+     */
+    public CharClasses(char[] chars, int[] classOf) {
+        if (chars.length != classOf.length) {
+            throw new IllegalArgumentException("every char needs a class");
+        }
+        int count = 0;
+        for (int c : classOf) {
+            if (c < 0) {
+                throw new IllegalArgumentException("negative class " + c);
+            }
+            count = Math.max(count, c + 1);
+        }
+        memberStart = new int[count + 1];
+        for (int c : classOf) {
+            memberStart[c + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            if (memberStart[c + 1] == 0) {
+                throw new IllegalArgumentException("class " + c + " is empty");
+            }
+            memberStart[c + 1] += memberStart[c];
+        }
+        members = new char[chars.length];
+        int[] fill = Arrays.copyOf(memberStart, count);
+        pages = new int[256][];
+        Arrays.fill(pages, EMPTY_PAGE);
+        for (int i = 0; i < chars.length; i++) {
+            char ch = chars[i];
+            int[] page = pages[ch >>> 8];
+            if (page == EMPTY_PAGE) {
+                page = EMPTY_PAGE.clone();
+                pages[ch >>> 8] = page;
+            }
+            if (page[ch & 0xFF] >= 0) {
+                throw new IllegalArgumentException("duplicate char " + ch);
+            }
+            page[ch & 0xFF] = classOf[i];
+            members[fill[classOf[i]]++] = ch;
+        }
+    }
+
+    /**
+     * @param chars, the alphabet, no duplicates
+     * @return the partition putting every char in a class of its own, class i
+     * holding chars[i]
+     */
+    public static CharClasses singletons(char[] chars) {
+        int[] classOf = new int[chars.length];
+        for (int i = 0; i < classOf.length; i++) {
+            classOf[i] = i;
+        }
+        return new CharClasses(chars, classOf);
+    }
+
+    /**
+     * @return the class of c, or -1 if c is not in the alphabet
+     */
+    public int classOf(char c) {
+        return pages[c >>> 8][c & 0xFF];
+    }
+
+    /**
+     * @return the number of classes
+     */
+    public int count() {
+        return memberStart.length - 1;
+    }
+
+    /**
+     * @return the number of characters in the alphabet
+     */
+    public int size() {
+        return members.length;
+    }
+
+    /**
+     * @return the characters of class c
+     */
+    public char[] members(int c) {
+        return Arrays.copyOfRange(members, memberStart[c], memberStart[c + 1]);
+    }
+
+    /**
+     * @return the first character of class c, it stands for the whole class
+     */
+    public char representative(int c) {
+        return members[memberStart[c]];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < count(); c++) {
+            sb.append("{ ");
+            for (int i = memberStart[c]; i < memberStart[c + 1]; i++) {
+                sb.append(members[i]).append(" ");
+            }
+            sb.append("}");
+        }
+        return sb.toString();
+    }
+}
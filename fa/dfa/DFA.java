@@ -0,0 +1,169 @@
+package fa.dfa;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import fa.FAInterface;
+
+/**
+ * Model of a Deterministic Finite Automata, typically produced from an NFA
+ * by subset construction
+ * @author Christian Galvan, Andrew Bates
+ */
+public class DFA implements FAInterface{
+    private Set<DFAState> Q; // set of states
+    private Map<String, DFAState> names; // Q indexed by name
+    private Set<Character> Sigma; // alphabet
+    private DFAState q0; // start state
+    private Set<DFAState> F; // set of final states
+
+    /**
+     * Default constructor for the deterministic finite automata
+     * initializes the set of states (Q), the alphabet (Sigma),
+     * and the set of final states (F) as empty sets.
+     */
+    public DFA() {
+        this.Q = new LinkedHashSet<>();
+        this.names = new HashMap<>();
+        this.Sigma = new LinkedHashSet<>();
+        this.F = new LinkedHashSet<>();
+    }
+
+    @Override
+    public boolean addState(String name) {
+        if (names.containsKey(name)) {
+            return false; // Name already exists
+        }
+        DFAState state = new DFAState(name);
+        names.put(name, state);
+        Q.add(state);
+        return true;
+    }
+
+    @Override
+    public boolean setFinal(String name) {
+        DFAState state = getState(name);
+        if (state != null) {
+            F.add(state);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean setStart(String name) {
+        DFAState state = getState(name);
+        if (state != null) {
+            q0 = state;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void addSigma(char symbol) {
+        Sigma.add(symbol);
+    }
+
+    /**
+     * Adds the transition to the DFA's delta, replacing any earlier one
+     * @param fromState is the label of the state where the transition starts
+     * @param toState is the label of the state where the transition ends
+     * @param onSymb is the symbol from the DFA's alphabet.
+     * @return true if successful and false if one of the states don't exist or the symbol in not in the alphabet
+     */
+    public boolean addTransition(String fromState, String toState, char onSymb) {
+        DFAState from = getState(fromState);
+        DFAState to = getState(toState);
+        if (from == null || to == null || !Sigma.contains(onSymb)) {
+            return false;
+        }
+        from.addTransition(onSymb, to);
+        return true;
+    }
+
+    @Override
+    public boolean accepts(String s) {
+        DFAState current = q0;
+        for (int i = 0; i < s.length() && current != null; i++) {
+            current = current.toState(s.charAt(i));
+        }
+        return current != null && F.contains(current);
+    }
+
+    @Override
+    public Set<Character> getSigma() {
+        return Sigma;
+    }
+
+    @Override
+    public DFAState getState(String name) {
+        return names.get(name);
+    }
+
+    @Override
+    public boolean isFinal(String name) {
+        DFAState state = getState(name);
+        return state != null && F.contains(state);
+    }
+
+    @Override
+    public boolean isStart(String name) {
+        DFAState state = getState(name);
+        return state != null && state == q0;
+    }
+
+    /**
+     * Return the delta entry
+     * @param from - the source state
+     * @param onSymb - the label of the transition
+     * @return the sink state or null if there is none
+     */
+    public DFAState getToState(DFAState from, char onSymb) {
+        return from.toState(onSymb);
+    }
+
+    /**
+     * @return the number of states in Q
+     */
+    public int size() {
+        return Q.size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Q = { ");
+        for (DFAState state : Q) {
+            sb.append(state.getName()).append(" ");
+        }
+        sb.append("}\nSigma = { ");
+        for (char c : Sigma) {
+            sb.append(c).append(" ");
+        }
+        sb.append("}\ndelta =\n");
+        for (char c : Sigma) {
+            sb.append("\t").append(c);
+        }
+        sb.append("\n");
+        for (DFAState state : Q) {
+            sb.append(state.getName());
+            for (char c : Sigma) {
+                DFAState to = state.toState(c);
+                sb.append("\t").append(to == null ? "-" : to.getName());
+            }
+            sb.append("\n");
+        }
+        sb.append("q0 = ");
+        sb.append(q0 == null ? "undefined" : q0.getName());
+        sb.append("\nF = { ");
+        for (DFAState state : F) {
+            sb.append(state.getName()).append(" ");
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,42 @@
+package fa.dfa;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import fa.State;
+
+/**
+ * DFAState object that has at most one transition per symbol
+ * @author Christian Galvan, Andrew Bates
+ */
+public class DFAState extends State{
+    private Map<Character, DFAState> transitions;
+
+    /**
+     * constructs a DFAState object with a name
+     * @param name, the name of the state
+     */
+    public DFAState(String name) {
+        super(name);
+        transitions = new HashMap<>();
+    }
+
+    /**
+     * Sets the transition from this state on a symbol, replacing any previous one
+     * @param onSymb, the symbol on which the transition occurs
+     * @param toState, the state where transition leads
+     */
+    public void addTransition(char onSymb, DFAState toState) {
+        transitions.put(onSymb, toState);
+    }
+
+    /**
+     * get the state this state goes to on a symbol
+     * @param onSymb, The symbol on which the transition occurs.
+     * @return The state reached by the transition, or null if there is none.
+     */
+    public DFAState toState(char onSymb) {
+        return transitions.get(onSymb);
+    }
+
+}
@@ -0,0 +1,164 @@
+package fa.dfa;
+
+import java.util.Set;
+
+/**
+ * Immutable array form of a DFA. States are ints, symbols are the classes of
+ * the table's alphabet, chars of one class share a column, and a missing
+ * transition leads to the implicit dead state DEAD. Safe to share between
+ * threads.
+ * @author Christian Galvan, Andrew Bates
+ */
+public class DFATable {
+    /** target of every missing transition */
+    public static final int DEAD = -1;
+
+    private final CharClasses classes; // the alphabet, one symbol per class
+    private final int[] delta; // [state * classes + symbol] -> state or DEAD
+    private final boolean[] finals;
+    private final int start;
+
+    /**
+     * @param symbols, the alphabet, no duplicates, each char is a symbol of its own
+     * @param delta, row major transition table with one row per state
+     * @param finals, which states accept, its length is the number of states
+     * @param start, the start state
+     */
+    public DFATable(char[] symbols, int[] delta, boolean[] finals, int start) {
+        this(CharClasses.singletons(symbols), delta, finals, start);
+    }
+
+    /**
+     * @param classes, the alphabet, each class of chars is one symbol
+     * @param delta, row major transition table with one row per state
+     * @param finals, which states accept, its length is the number of states
+     * @param start, the start state
+     */
+    public DFATable(CharClasses classes, int[] delta, boolean[] finals, int start) {
+        if (delta.length != classes.count() * finals.length) {
+            throw new IllegalArgumentException("delta must have one entry per state and symbol");
+        }
+        if (start < 0 || start >= finals.length) {
+            throw new IllegalArgumentException("start state out of range: " + start);
+        }
+        this.classes = classes;
+        this.delta = delta.clone();
+        this.finals = finals.clone();
+        this.start = start;
+    }
+
+    /**
+     * Runs the DFA on s, a character outside the alphabet rejects
+     * @param s, the input
+     * @return true if s is accepted
+     */
+    public boolean accepts(CharSequence s) {
+        int state = start;
+        int width = classes.count();
+        for (int i = 0, n = s.length(); i < n; i++) {
+            int a = symbolOf(s.charAt(i));
+            if (a < 0) {
+                return false;
+            }
+            state = delta[state * width + a];
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return finals[state];
+    }
+
+    /**
+     * @return the symbol, the class, of c or -1 if c is not in the alphabet
+     */
+    public int symbolOf(char c) {
+        return classes.classOf(c);
+    }
+
+    /**
+     * @return the state reached from state on the symbol with the given index, or DEAD
+     */
+    public int next(int state, int symbol) {
+        return delta[state * classes.count() + symbol];
+    }
+
+    public boolean isFinal(int state) {
+        return finals[state];
+    }
+
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return a character of the class with the given index
+     */
+    public char symbol(int index) {
+        return classes.representative(index);
+    }
+
+    /**
+     * @return the alphabet and its partition into symbols
+     */
+    public CharClasses classes() {
+        return classes;
+    }
+
+    public int stateCount() {
+        return finals.length;
+    }
+
+    /**
+     * @return the number of symbols, the classes of the alphabet
+     */
+    public int symbolCount() {
+        return classes.count();
+    }
+
+    /**
+     * Builds a named DFA with states D0, D1, ...
+     * @param sigma, the alphabet of the result, table symbols outside it are dropped
+     * @return the equivalent DFA
+     */
+    public DFA toDFA(Set<Character> sigma) {
+        String[] names = new String[stateCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "D" + i;
+        }
+        return toDFA(sigma, names);
+    }
+
+    /**
+     * Builds a named DFA, the dead state is left implicit
+     * @param sigma, the alphabet of the result, table symbols outside it are dropped
+     * @param names, the name of every state
+     * @return the equivalent DFA
+     */
+    public DFA toDFA(Set<Character> sigma, String[] names) {
+        DFA dfa = new DFA();
+        for (char c : sigma) {
+            dfa.addSigma(c);
+        }
+        for (int s = 0; s < stateCount(); s++) {
+            dfa.addState(names[s]);
+            if (finals[s]) {
+                dfa.setFinal(names[s]);
+            }
+        }
+        dfa.setStart(names[start]);
+        for (int s = 0; s < stateCount(); s++) {
+            for (int a = 0; a < classes.count(); a++) {
+                int t = next(s, a);
+                if (t == DEAD) {
+                    continue;
+                }
+                for (char c : classes.members(a)) {
+                    if (sigma.contains(c)) {
+                        dfa.addTransition(names[s], names[t], c);
+                    }
+                }
+            }
+        }
+        return dfa;
+    }
+}
@@ -0,0 +1,229 @@
+package fa.dfa;
+
+import java.util.Arrays;
+
+/**
+ * Hopcroft's O(n log n) DFA minimization. The table is completed with an
+ * explicit dead state, refined starting from the final / non final split,
+ * and rebuilt with one state per block that can still reach a final state.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class Hopcroft {
+
+    private Hopcroft() {
+    }
+
+    /**
+     * @param dfa, the table to minimize
+     * @return the minimal equivalent table and the state counts
+     */
+    public static Minimization minimize(DFATable dfa) {
+        int before = dfa.stateCount();
+        int sigma = dfa.symbolCount();
+        int n = before + 1; // state before is the dead state
+        int dead = before;
+
+        // total transition function and its inverse, one CSR list per symbol
+        int[][] predStart = new int[sigma][];
+        int[][] preds = new int[sigma][];
+        for (int a = 0; a < sigma; a++) {
+            int[] count = new int[n + 1];
+            for (int s = 0; s < n; s++) {
+                count[target(dfa, s, a, dead) + 1]++;
+            }
+            for (int t = 0; t < n; t++) {
+                count[t + 1] += count[t];
+            }
+            int[] list = new int[n];
+            int[] fill = Arrays.copyOf(count, n);
+            for (int s = 0; s < n; s++) {
+                list[fill[target(dfa, s, a, dead)]++] = s;
+            }
+            predStart[a] = count;
+            preds[a] = list;
+        }
+
+        // partition: elems grouped by block, block b is elems[first[b] .. end[b])
+        int[] elems = new int[n];
+        int[] loc = new int[n];
+        int[] blockOf = new int[n];
+        int[] first = new int[n];
+        int[] end = new int[n];
+        int[] marked = new int[n];
+        int finals = 0;
+        for (int s = 0; s < before; s++) {
+            if (dfa.isFinal(s)) {
+                finals++;
+            }
+        }
+        int f = 0;
+        int nf = finals;
+        for (int s = 0; s < n; s++) {
+            boolean isFinal = s < before && dfa.isFinal(s);
+            int i = isFinal ? f++ : nf++;
+            elems[i] = s;
+            loc[s] = i;
+        }
+        int blocks;
+        if (finals == 0 || finals == n) {
+            blocks = 1;
+            first[0] = 0;
+            end[0] = n;
+        } else {
+            blocks = 2;
+            first[0] = 0;
+            end[0] = finals;
+            first[1] = finals;
+            end[1] = n;
+            for (int i = finals; i < n; i++) {
+                blockOf[elems[i]] = 1;
+            }
+        }
+
+        // worklist of splitters (block, symbol)
+        boolean[] inWork = new boolean[n * Math.max(sigma, 1)];
+        int[] work = new int[16];
+        int pending = 0;
+        if (blocks == 2) {
+            int smaller = finals <= n - finals ? 0 : 1;
+            for (int a = 0; a < sigma; a++) {
+                work = push(work, pending++, smaller * sigma + a);
+                inWork[smaller * sigma + a] = true;
+            }
+        }
+
+        int[] splitter = new int[n];
+        int[] touched = new int[n];
+        while (pending > 0) {
+            int item = work[--pending];
+            inWork[item] = false;
+            int splitBlock = item / sigma;
+            int a = item % sigma;
+
+            // copy the splitter first, marking moves states inside blocks
+            int size = 0;
+            for (int i = first[splitBlock]; i < end[splitBlock]; i++) {
+                splitter[size++] = elems[i];
+            }
+            int touchedCount = 0;
+            for (int k = 0; k < size; k++) {
+                int t = splitter[k];
+                for (int j = predStart[a][t]; j < predStart[a][t + 1]; j++) {
+                    int p = preds[a][j];
+                    int b = blockOf[p];
+                    int boundary = first[b] + marked[b];
+                    if (loc[p] < boundary) {
+                        continue; // already marked
+                    }
+                    int other = elems[boundary];
+                    elems[boundary] = p;
+                    elems[loc[p]] = other;
+                    loc[other] = loc[p];
+                    loc[p] = boundary;
+                    if (marked[b]++ == 0) {
+                        touched[touchedCount++] = b;
+                    }
+                }
+            }
+
+            for (int k = 0; k < touchedCount; k++) {
+                int b = touched[k];
+                int m = marked[b];
+                marked[b] = 0;
+                int whole = end[b] - first[b];
+                if (m == whole) {
+                    continue;
+                }
+                // the smaller half becomes the new block so relabelling stays cheap
+                int nb = blocks++;
+                if (m <= whole - m) {
+                    first[nb] = first[b];
+                    end[nb] = first[b] + m;
+                    first[b] = end[nb];
+                } else {
+                    first[nb] = first[b] + m;
+                    end[nb] = end[b];
+                    end[b] = first[nb];
+                }
+                for (int i = first[nb]; i < end[nb]; i++) {
+                    blockOf[elems[i]] = nb;
+                }
+                int smaller = end[nb] - first[nb] <= end[b] - first[b] ? nb : b;
+                for (int c = 0; c < sigma; c++) {
+                    int add = inWork[b * sigma + c] ? nb : smaller;
+                    if (!inWork[add * sigma + c]) {
+                        inWork[add * sigma + c] = true;
+                        work = push(work, pending++, add * sigma + c);
+                    }
+                }
+            }
+        }
+
+        return new Minimization(rebuild(dfa, blockOf, blocks, dead), before);
+    }
+
+    /**
+     * numbers the live blocks breadth first from the start block
+     */
+    private static DFATable rebuild(DFATable dfa, int[] blockOf, int blocks, int dead) {
+        int sigma = dfa.symbolCount();
+        int deadBlock = blockOf[dead];
+        int[] rep = new int[blocks];
+        for (int s = 0; s < dead; s++) {
+            rep[blockOf[s]] = s;
+        }
+        int[] id = new int[blocks];
+        Arrays.fill(id, -1);
+        int[] order = new int[blocks];
+        int count = 0;
+        CharClasses symbols = dfa.classes();
+
+        int startBlock = blockOf[dfa.start()];
+        if (startBlock == deadBlock) {
+            // empty language, a single rejecting state
+            int[] delta = new int[sigma];
+            Arrays.fill(delta, DFATable.DEAD);
+            return new DFATable(symbols, delta, new boolean[1], 0);
+        }
+        id[startBlock] = count;
+        order[count++] = startBlock;
+        for (int i = 0; i < count; i++) {
+            int s = rep[order[i]];
+            for (int a = 0; a < sigma; a++) {
+                int tb = blockOf[target(dfa, s, a, dead)];
+                if (tb != deadBlock && id[tb] < 0) {
+                    id[tb] = count;
+                    order[count++] = tb;
+                }
+            }
+        }
+
+        int[] delta = new int[count * sigma];
+        boolean[] finals = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            int s = rep[order[i]];
+            finals[i] = dfa.isFinal(s);
+            for (int a = 0; a < sigma; a++) {
+                int tb = blockOf[target(dfa, s, a, dead)];
+                delta[i * sigma + a] = tb == deadBlock ? DFATable.DEAD : id[tb];
+            }
+        }
+        return new DFATable(symbols, delta, finals, 0);
+    }
+
+    private static int target(DFATable dfa, int s, int a, int dead) {
+        if (s == dead) {
+            return dead;
+        }
+        int t = dfa.next(s, a);
+        return t == DFATable.DEAD ? dead : t;
+    }
+
+    private static int[] push(int[] work, int at, int item) {
+        if (at == work.length) {
+            work = Arrays.copyOf(work, at * 2);
+        }
+        work[at] = item;
+        return work;
+    }
+}
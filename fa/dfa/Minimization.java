@@ -0,0 +1,42 @@
+package fa.dfa;
+
+/**
+ * Outcome of minimizing a DFATable: the minimal table and how many states
+ * the table had before and after. The implicit dead state is not counted.
+ * @author Christian Galvan, Andrew Bates
+ */
+public class Minimization {
+    private final DFATable table;
+    private final int before;
+
+    Minimization(DFATable table, int before) {
+        this.table = table;
+        this.before = before;
+    }
+
+    /**
+     * @return the minimal table, it accepts the same strings as the input
+     */
+    public DFATable table() {
+        return table;
+    }
+
+    /**
+     * @return the number of states before minimization
+     */
+    public int before() {
+        return before;
+    }
+
+    /**
+     * @return the number of states after minimization
+     */
+    public int after() {
+        return table.stateCount();
+    }
+
+    @Override
+    public String toString() {
+        return "minimized " + before + " -> " + after() + " states";
+    }
+}
@@ -0,0 +1,194 @@
+package fa.nfa;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import fa.dfa.DFATable;
+
+/**
+ * Answers accepts and maxCopies for one compiled form of an NFA on the
+ * engine that suits its shape best:
+ * <ol>
+ * <li>DFA_TABLE if no state has a real epsilon move or two targets on one
+ * symbol, the subset construction then only yields singletons</li>
+ * <li>BIT_PARALLEL if BitParallelNFA takes the automaton</li>
+ * <li>LAZY_DFA if epsilon edges are dense, so active sets are large and a
+ * simulation step is costly, and Sigma is small enough for the cached
+ * states to stay cheap</li>
+ * <li>SPARSE_SET if an eclosure holds fewer states on average than there
+ * are longs in a bitset, so adding members one by one beats or-ing bitsets</li>
+ * <li>SIMULATION otherwise</li>
+ * </ol>
+ * Every engine gives the answers CompiledNFA gives. Picking the engine is
+ * cheap, but its tables are not: up to 8 MB for BIT_PARALLEL, a
+ * row per state for DFA_TABLE. They are built on the second match only, so
+ * an automaton that is changed after every query never pays for them and
+ * runs on the simulation instead. The LazyDFA is not thread safe, so a match
+ * takes it out and puts it back, and a match running while another one
+ * holds it falls back to the simulation.
+ * @author Christian Galvan, Andrew Bates
+ */
+final class AdaptiveMatcher {
+    /** epsilon edges per state from which LAZY_DFA is picked */
+    static final double DENSE_EPSILON = 0.5;
+    /** the largest Sigma LAZY_DFA is picked for, every cached state holds a slot per class */
+    static final int MAX_LAZY_SIGMA = 256;
+
+    private final CompiledNFA nfa;
+    private final Engine engine;
+    private int uses; // matches asked for before the tables were built, guarded by this
+    private volatile boolean built; // publishes the tables below
+    private DFATable table;
+    private BitParallelNFA parallel;
+    private SparseSetNFA sparse;
+    private final AtomicReference<LazyDFA> lazy = new AtomicReference<>(); // null while a match is using it
+
+    /**
+     * @param nfa, the compiled automaton
+     * @param sigmaSize, the size of the Sigma it was compiled from
+     */
+    AdaptiveMatcher(CompiledNFA nfa, int sigmaSize) {
+        this.nfa = nfa;
+        if (deterministic(nfa)) {
+            engine = Engine.DFA_TABLE;
+        } else if (BitParallelNFA.qualifies(nfa)) {
+            engine = Engine.BIT_PARALLEL;
+        } else if (epsilonDensity(nfa) >= DENSE_EPSILON && sigmaSize <= MAX_LAZY_SIGMA) {
+            engine = Engine.LAZY_DFA;
+        } else if (closureSize(nfa) <= Bits.words(nfa.stateCount())) {
+            engine = Engine.SPARSE_SET;
+        } else {
+            engine = Engine.SIMULATION;
+        }
+    }
+
+    /**
+     * Builds the tables of the engine once this matcher is asked a second time.
+     * @return true if the tables are ready, false if this match should run on
+     * the simulation
+     */
+    private synchronized boolean build() {
+        if (built || ++uses < 2) {
+            return built;
+        }
+        switch (engine) {
+            case DFA_TABLE:
+                table = SubsetConstruction.table(nfa, nfa.stateCount() + 1);
+                break;
+            case BIT_PARALLEL:
+                parallel = BitParallelNFA.of(nfa);
+                break;
+            case LAZY_DFA:
+                lazy.set(new LazyDFA(nfa, LazyDFA.DEFAULT_CAPACITY));
+                break;
+            case SPARSE_SET:
+                sparse = new SparseSetNFA(nfa);
+                break;
+            default:
+                break;
+        }
+        built = true;
+        return true;
+    }
+
+    /**
+     * @return the compiled form this matcher answers for
+     */
+    CompiledNFA compiled() {
+        return nfa;
+    }
+
+    Engine engine() {
+        return engine;
+    }
+
+    boolean accepts(String s) {
+        if (!built && !build()) {
+            return nfa.accepts(s);
+        }
+        switch (engine) {
+            case DFA_TABLE:
+                return table.accepts(s);
+            case BIT_PARALLEL:
+                return parallel.accepts(s);
+            case LAZY_DFA:
+                LazyDFA dfa = lazy.getAndSet(null);
+                if (dfa == null) {
+                    return nfa.accepts(s); // another thread holds it
+                }
+                try {
+                    return dfa.accepts(s);
+                } finally {
+                    lazy.set(dfa);
+                }
+            case SPARSE_SET:
+                return sparse.accepts(s);
+            default:
+                return nfa.accepts(s);
+        }
+    }
+
+    int maxCopies(String s) {
+        if (!built && !build()) {
+            return nfa.maxCopies(s);
+        }
+        switch (engine) {
+            case DFA_TABLE:
+                return nfa.start() < 0 ? 0 : 1; // every active set is a singleton or empty
+            case BIT_PARALLEL:
+                return parallel.maxCopies(s);
+            case SPARSE_SET:
+                return sparse.maxCopies(s);
+            default:
+                return nfa.maxCopies(s);
+        }
+    }
+
+    /**
+     * @return true if every eclosure is the state alone and no state has two
+     * targets on one symbol
+     */
+    static boolean deterministic(CompiledNFA nfa) {
+        for (int s = 0; s < nfa.stateCount(); s++) {
+            if (Bits.cardinality(nfa.closure(s)) != 1) {
+                return false;
+            }
+            for (int a = 0; a < nfa.symbolCount(); a++) {
+                if (nfa.targets(a, s).length > 1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of 'e' transitions per state
+     */
+    static double epsilonDensity(CompiledNFA nfa) {
+        int e = nfa.symbolOf('e');
+        int n = nfa.stateCount();
+        if (e < 0 || n == 0) {
+            return 0;
+        }
+        long edges = 0;
+        for (int s = 0; s < n; s++) {
+            edges += nfa.targets(e, s).length;
+        }
+        return (double) edges / n;
+    }
+
+    /**
+     * @return the average number of states in an eclosure
+     */
+    static double closureSize(CompiledNFA nfa) {
+        int n = nfa.stateCount();
+        if (n == 0) {
+            return 0;
+        }
+        long members = 0;
+        for (int s = 0; s < n; s++) {
+            members += Bits.cardinality(nfa.closure(s));
+        }
+        return (double) members / n;
+    }
+}
@@ -0,0 +1,160 @@
+package fa.nfa;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Classifies many strings against one automaton using several cores.
+ *
+ * The automaton is compiled once when the matcher is created. The compiled
+ * form is immutable, so worker threads share it without locking, and later
+ * changes to the NFA are not seen by the matcher.
+ *
+ * A matcher created with an explicit parallelism owns its ForkJoinPool and
+ * should be closed, one created without uses the common pool.
+ * @author Christian Galvan, Andrew Bates
+ */
+public class BatchMatcher implements AutoCloseable {
+    private static final int STREAM_CHUNK = 4096; // strings read from a stream per parallel round
+
+    private final CompiledNFA nfa;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /**
+     * creates a matcher running on the common ForkJoinPool
+     * @param nfa, the automaton to match against
+     */
+    public BatchMatcher(NFA nfa) {
+        this.nfa = nfa.compile();
+        this.pool = ForkJoinPool.commonPool();
+        this.ownsPool = false;
+    }
+
+    /**
+     * creates a matcher with its own pool of the given size
+     * @param nfa, the automaton to match against
+     * @param parallelism, the number of worker threads
+     */
+    public BatchMatcher(NFA nfa, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.nfa = nfa.compile();
+        this.pool = new ForkJoinPool(parallelism);
+        this.ownsPool = true;
+    }
+
+    /**
+     * @param inputs, the strings to classify
+     * @return the verdict for every input, in the same order
+     */
+    public boolean[] accepts(List<? extends CharSequence> inputs) {
+        boolean[] result = new boolean[inputs.size()];
+        run(inputs::get, result, inputs.size());
+        return result;
+    }
+
+    /**
+     * @param inputs, the strings to classify
+     * @return the verdict for every input, in the same order
+     */
+    public boolean[] accepts(CharSequence[] inputs) {
+        boolean[] result = new boolean[inputs.length];
+        run(i -> inputs[i], result, inputs.length);
+        return result;
+    }
+
+    /**
+     * Classifies a stream in encounter order. The stream is consumed in
+     * chunks, so it never has to be held in memory as a whole.
+     * @param inputs, the strings to classify
+     * @return bit i is set if the i-th string is accepted
+     */
+    public BitSet accepts(Stream<? extends CharSequence> inputs) {
+        BitSet result = new BitSet();
+        CharSequence[] chunk = new CharSequence[STREAM_CHUNK];
+        boolean[] verdicts = new boolean[STREAM_CHUNK];
+        int offset = 0;
+        Iterator<? extends CharSequence> it = inputs.iterator();
+        while (it.hasNext()) {
+            int n = 0;
+            while (n < STREAM_CHUNK && it.hasNext()) {
+                chunk[n++] = it.next();
+            }
+            run(i -> chunk[i], verdicts, n);
+            for (int i = 0; i < n; i++) {
+                if (verdicts[i]) {
+                    result.set(offset + i);
+                }
+            }
+            offset += n;
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of worker threads used
+     */
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * shuts down the pool if the matcher created it
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private void run(IntFunction<? extends CharSequence> inputs, boolean[] result, int n) {
+        if (n == 0) {
+            return;
+        }
+        // a few tasks per worker so uneven string lengths even out
+        int grain = Math.max(1, n / (pool.getParallelism() * 8));
+        pool.invoke(new Slice(inputs, result, 0, n, grain));
+    }
+
+    /**
+     * classifies inputs [from, to), splitting in halves down to grain
+     */
+    private final class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient IntFunction<? extends CharSequence> inputs;
+        private final boolean[] result;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        Slice(IntFunction<? extends CharSequence> inputs, boolean[] result, int from, int to, int grain) {
+            this.inputs = inputs;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int i = from; i < to; i++) {
+                    result[i] = nfa.accepts(inputs.apply(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Slice(inputs, result, from, mid, grain),
+                    new Slice(inputs, result, mid, to, grain));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package fa.nfa;
+
+import java.util.Arrays;
+
+/**
+ * Bit-parallel simulation for small automata. The active set is a single
+ * long when there are at most 64 states, and a few longs up to MAX_STATES.
+ *
+ * For every symbol class a and every state s the mask M[a][s] holds the
+ * eclosures of the targets of s on a, so epsilon transitions are folded in
+ * and a step is next = OR of M[a][s] over the active s. Instead of looping
+ * over the active states, the masks are combined per byte of the active set
+ * ahead of time, table[a][k][b] being the OR of M[a][s] for the states s set
+ * in byte value b at byte position k. A step is then one table lookup per
+ * byte of the active set, 8 for a 64 state automaton.
+ *
+ * Answers are the same as CompiledNFA gives. Built from an immutable
+ * CompiledNFA and never changed, so it can be shared between threads.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class BitParallelNFA {
+    /** the most states an automaton may have to qualify */
+    public static final int MAX_STATES = 256;
+    /** the most longs the tables may take */
+    private static final long MAX_TABLE = 1L << 20;
+
+    private final CompiledNFA nfa;
+    private final int words;
+    private final int chunks; // bytes of the active set that can hold states
+    private final long[] table; // [((a * chunks + k) * 256 + b) * words + w]
+    private final long[] start;
+    private final long[] finals;
+
+    private BitParallelNFA(CompiledNFA nfa) {
+        this.nfa = nfa;
+        int n = nfa.stateCount();
+        int width = nfa.symbolCount();
+        words = Math.max(1, Bits.words(n));
+        chunks = Math.max(1, (n + 7) / 8);
+        table = new long[width * chunks * 256 * words];
+
+        start = new long[words];
+        nfa.startSet(start);
+        finals = new long[words];
+        for (int s = 0; s < n; s++) {
+            if (nfa.isFinal(s)) {
+                Bits.set(finals, s);
+            }
+        }
+
+        long[] mask = new long[words];
+        for (int a = 0; a < width; a++) {
+            for (int k = 0; k < chunks; k++) {
+                int base = (a * chunks + k) * 256;
+                // high bits first, so the value without the lowest bit is always done
+                for (int bit = Math.min(7, n - 8 * k - 1); bit >= 0; bit--) {
+                    // M[a][s] for the state of this bit
+                    Arrays.fill(mask, 0L);
+                    for (int t : nfa.targets(a, 8 * k + bit)) {
+                        Bits.or(mask, nfa.closure(t));
+                    }
+                    // every byte value whose lowest set bit is bit extends the value without it
+                    for (int b = 1 << bit; b < 256; b += 1 << (bit + 1)) {
+                        int from = (base + (b & (b - 1))) * words;
+                        int to = (base + b) * words;
+                        for (int w = 0; w < words; w++) {
+                            table[to + w] = table[from + w] | mask[w];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param nfa, the compiled automaton
+     * @return the bit-parallel form, or null if nfa has more than MAX_STATES
+     * states or its tables would be too large
+     */
+    static BitParallelNFA of(CompiledNFA nfa) {
+        return qualifies(nfa) ? new BitParallelNFA(nfa) : null;
+    }
+
+    /**
+     * @param nfa, the automaton
+     * @return the bit-parallel form, or null if the automaton does not qualify
+     */
+    public static BitParallelNFA of(NFA nfa) {
+        return of(nfa.compile());
+    }
+
+    /**
+     * @return true if a bit-parallel form of nfa is small enough to build
+     */
+    static boolean qualifies(CompiledNFA nfa) {
+        int n = nfa.stateCount();
+        if (n > MAX_STATES) {
+            return false;
+        }
+        long words = Math.max(1, Bits.words(n));
+        long chunks = Math.max(1, (n + 7) / 8);
+        return (long) nfa.symbolCount() * chunks * 256 * words <= MAX_TABLE;
+    }
+
+    /**
+     * @param s, the input
+     * @return true if s is accepted
+     */
+    public boolean accepts(CharSequence s) {
+        if (words == 1) {
+            long current = run(s, null);
+            return (current & finals[0]) != 0;
+        }
+        return Bits.intersects(runWide(s, null), finals);
+    }
+
+    /**
+     * @param s, the input
+     * @return the largest number of active states while processing s
+     */
+    public int maxCopies(CharSequence s) {
+        int[] max = new int[1];
+        if (words == 1) {
+            run(s, max);
+        } else {
+            runWide(s, max);
+        }
+        return max[0];
+    }
+
+    /**
+     * @return the number of longs in an active set
+     */
+    public int words() {
+        return words;
+    }
+
+    /**
+     * the single long variant, max[0] gets the peak if max is not null
+     */
+    private long run(CharSequence s, int[] max) {
+        long current = start[0];
+        int peak = Long.bitCount(current);
+        for (int i = 0, n = s.length(); i < n && current != 0; i++) {
+            int a = nfa.symbolOf(s.charAt(i));
+            if (a < 0) {
+                current = 0;
+                break;
+            }
+            int base = a * chunks * 256;
+            long next = 0;
+            for (int k = 0; k < chunks; k++) {
+                next |= table[base + (k << 8) + (int) (current >>> (k << 3) & 0xFF)];
+            }
+            current = next;
+            if (max != null) {
+                peak = Math.max(peak, Long.bitCount(current));
+            }
+        }
+        if (max != null) {
+            max[0] = peak;
+        }
+        return current;
+    }
+
+    /**
+     * the multi word variant, max[0] gets the peak if max is not null
+     */
+    private long[] runWide(CharSequence s, int[] max) {
+        long[] current = start.clone();
+        long[] next = new long[words];
+        int peak = Bits.cardinality(current);
+        for (int i = 0, n = s.length(); i < n && !Bits.isEmpty(current); i++) {
+            int a = nfa.symbolOf(s.charAt(i));
+            if (a < 0) {
+                Bits.clear(current);
+                break;
+            }
+            Bits.clear(next);
+            int base = a * chunks * 256;
+            for (int k = 0; k < chunks; k++) {
+                int b = (int) (current[k >>> 3] >>> ((k & 7) << 3) & 0xFF);
+                if (b != 0) {
+                    int at = (base + (k << 8) + b) * words;
+                    for (int w = 0; w < words; w++) {
+                        next[w] |= table[at + w];
+                    }
+                }
+            }
+            long[] tmp = current;
+            current = next;
+            next = tmp;
+            if (max != null) {
+                peak = Math.max(peak, Bits.cardinality(current));
+            }
+        }
+        if (max != null) {
+            max[0] = peak;
+        }
+        return current;
+    }
+}
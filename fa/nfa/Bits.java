@@ -0,0 +1,97 @@
+package fa.nfa;
+
+/**
+ * Static helpers for treating a long[] as a fixed size bitset of state ids.
+ * None of these methods allocate, so they are safe to call per input character.
+ * @author Christian Galvan, Andrew Bates
+ */
+final class Bits {
+
+    private Bits() {
+    }
+
+    /**
+     * @param bits, the number of bits the set has to hold
+     * @return the number of longs needed to hold that many bits
+     */
+    static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    static void set(long[] set, int i) {
+        set[i >>> 6] |= 1L << i;
+    }
+
+    static boolean get(long[] set, int i) {
+        int w = i >>> 6;
+        return w < set.length && (set[w] & (1L << i)) != 0;
+    }
+
+    /**
+     * ors src into dst, src may be shorter than dst
+     * @param dst, the set receiving the bits
+     * @param src, the set being added
+     */
+    static void or(long[] dst, long[] src) {
+        for (int i = 0; i < src.length; i++) {
+            dst[i] |= src[i];
+        }
+    }
+
+    /**
+     * @return true if the two sets have at least one bit in common
+     */
+    static boolean intersects(long[] a, long[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            if ((a[i] & b[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isEmpty(long[] set) {
+        for (long word : set) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int cardinality(long[] set) {
+        int count = 0;
+        for (long word : set) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    static void clear(long[] set) {
+        for (int i = 0; i < set.length; i++) {
+            set[i] = 0L;
+        }
+    }
+
+    /**
+     * @param from, the first index to look at
+     * @return the index of the next set bit at or after from, or -1 if there is none
+     */
+    static int nextSetBit(long[] set, int from) {
+        int w = from >>> 6;
+        if (w >= set.length) {
+            return -1;
+        }
+        long word = set[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == set.length) {
+                return -1;
+            }
+            word = set[w];
+        }
+    }
+}
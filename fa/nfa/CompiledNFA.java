@@ -0,0 +1,365 @@
+package fa.nfa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import fa.dfa.CharClasses;
+
+/**
+ * Dense, read only form of an NFA used to run simulations without allocating.
+ * States keep the ids 0..n-1 they were given by the NFA, active sets are
+ * long[] bitsets and the transition table is indexed by symbol then state,
+ * where a symbol is a class of chars that behave the same in every state.
+ * Every transition target is stored together with its precomputed eclosure so
+ * that a simulation step is a handful of bitset ors.
+ *
+ * Input is interpreted exactly like the set based simulation in NFA: a
+ * character that labels no transition kills every copy, and an 'e' in the
+ * input follows the epsilon transitions.
+ *
+ * Instances never change after construction, so one compiled automaton can be
+ * shared by any number of threads without locking.
+ * @author Christian Galvan, Andrew Bates
+ */
+public class CompiledNFA {
+    private static final int[] NO_TARGETS = new int[0];
+
+    private final NFAState[] states; // states by id
+    private final CharClasses classes; // the input alphabet, a symbol is a class of chars
+    private final int[][][] delta; // [symbol][state] -> target state ids
+    private final long[][] closure; // [state] -> eclosure bitset, possibly shorter than words
+    private final long[] finals;
+    private final int start;
+    private final int words;
+
+    /**
+     * compiles the current contents of an NFA, later changes to the NFA are
+     * not reflected in this object
+     * @param nfa, the automaton to compile
+     */
+    CompiledNFA(NFA nfa) {
+        Set<NFAState> Q = nfa.states();
+        states = Q.toArray(new NFAState[0]);
+        words = Bits.words(states.length);
+
+        // the input alphabet is Sigma plus whatever labels a transition ('e')
+        Set<Character> alphabet = new TreeSet<>(nfa.getSigma());
+        for (NFAState state : states) {
+            for (char c : state.symbols()) {
+                alphabet.add(c);
+            }
+        }
+        char[] chars = new char[alphabet.size()];
+        int k = 0;
+        for (char c : alphabet) {
+            chars[k++] = c;
+        }
+        classes = partition(chars);
+
+        delta = new int[classes.count()][states.length][];
+        for (int a = 0; a < delta.length; a++) {
+            char c = classes.representative(a);
+            for (int s = 0; s < states.length; s++) {
+                Set<NFAState> to = states[s].toStates(c);
+                if (to.isEmpty()) {
+                    delta[a][s] = NO_TARGETS;
+                } else {
+                    int[] targets = new int[to.size()];
+                    int j = 0;
+                    for (NFAState t : to) {
+                        targets[j++] = t.id();
+                    }
+                    delta[a][s] = targets;
+                }
+            }
+        }
+
+        // the closures are shared with the NFA's table, they are never modified
+        closure = new long[states.length][];
+        for (int s = 0; s < states.length; s++) {
+            closure[s] = nfa.closureBits(states[s]);
+        }
+
+        finals = new long[words];
+        for (NFAState f : nfa.finals()) {
+            Bits.set(finals, f.id());
+        }
+        NFAState q0 = nfa.start();
+        start = q0 == null ? -1 : q0.id();
+    }
+
+    /**
+     * Groups the chars that lead every state to the same targets into one
+     * class, so delta has a row per class instead of per char. Chars that
+     * label nothing share a single class.
+     */
+    private CharClasses partition(char[] chars) {
+        Map<StateSet, Integer> targetIds = new HashMap<>(); // sorted target ids -> number
+        long[][] signature = new long[chars.length][]; // (state, target set) pairs by state
+        int[] length = new int[chars.length];
+        for (NFAState state : states) {
+            for (char c : state.symbols()) {
+                Set<NFAState> to = state.toStates(c);
+                long[] ids = new long[to.size()];
+                int j = 0;
+                for (NFAState t : to) {
+                    ids[j++] = t.id();
+                }
+                Arrays.sort(ids);
+                StateSet key = new StateSet(ids);
+                Integer id = targetIds.get(key);
+                if (id == null) {
+                    id = targetIds.size();
+                    targetIds.put(key, id);
+                }
+                int i = Arrays.binarySearch(chars, c);
+                if (signature[i] == null) {
+                    signature[i] = new long[4];
+                } else if (length[i] == signature[i].length) {
+                    signature[i] = Arrays.copyOf(signature[i], length[i] * 2);
+                }
+                signature[i][length[i]++] = (long) state.id() << 32 | id;
+            }
+        }
+
+        Map<StateSet, Integer> classIds = new HashMap<>();
+        int[] classOf = new int[chars.length];
+        for (int i = 0; i < chars.length; i++) {
+            long[] sig = signature[i] == null ? new long[0] : Arrays.copyOf(signature[i], length[i]);
+            StateSet key = new StateSet(sig);
+            Integer id = classIds.get(key);
+            if (id == null) {
+                id = classIds.size();
+                classIds.put(key, id);
+            }
+            classOf[i] = id;
+        }
+        return new CharClasses(chars, classOf);
+    }
+
+    /**
+     * Simulates the automaton on s
+     * @param s, the input
+     * @return true if s is accepted
+     */
+    public boolean accepts(CharSequence s) {
+        return evaluate(s).accepted();
+    }
+
+    /**
+     * Determines the largest active set seen while processing s
+     * @param s, the input
+     * @return the maximum number of NFA copies
+     */
+    public int maxCopies(CharSequence s) {
+        return evaluate(s).maxCopies();
+    }
+
+    /**
+     * Runs the simulation once and keeps everything accepts and maxCopies
+     * need, so callers wanting both pay for a single pass
+     * @param s, the input
+     * @return the verdict, the peak number of copies and the final active set
+     */
+    public Evaluation evaluate(CharSequence s) {
+        long[] current = new long[words];
+        long[] next = new long[words];
+        startSet(current);
+        int size = Bits.cardinality(current);
+        int max = size;
+        int i = 0;
+        for (int n = s.length(); i < n && size > 0; i++) {
+            step(current, next, s.charAt(i));
+            long[] tmp = current;
+            current = next;
+            next = tmp;
+            size = Bits.cardinality(current);
+            max = Math.max(max, size);
+        }
+        int deathStep = size == 0 ? i : -1;
+        return new Evaluation(this, size > 0 && Bits.intersects(current, finals), max, deathStep, current);
+    }
+
+    /**
+     * Simulates the automaton on s and reports the counters of the run
+     * @param s, the input
+     * @param listener, receives the counters once the match is over
+     * @return true if s is accepted
+     */
+    public boolean accepts(CharSequence s, SimulationListener listener) {
+        MatchStats stats = trace(s);
+        listener.matchCompleted(stats);
+        return stats.accepted();
+    }
+
+    /**
+     * Determines the largest active set seen while processing s and reports
+     * the counters of the run
+     * @param s, the input
+     * @param listener, receives the counters once the match is over
+     * @return the maximum number of NFA copies
+     */
+    public int maxCopies(CharSequence s, SimulationListener listener) {
+        MatchStats stats = trace(s);
+        listener.matchCompleted(stats);
+        return stats.peakActive();
+    }
+
+    /**
+     * the instrumented twin of accepts, kept apart so the plain path carries
+     * no counters at all
+     */
+    MatchStats trace(CharSequence s) {
+        long begin = System.nanoTime();
+        long[] current = new long[words];
+        long[] next = new long[words];
+        startSet(current);
+        int size = Bits.cardinality(current);
+        int peak = size;
+        long total = size;
+        long expansions = 0;
+        long followed = 0;
+        int consumed = 0;
+        int n = s.length();
+        while (consumed < n && size > 0) {
+            Bits.clear(next);
+            int a = symbolOf(s.charAt(consumed++));
+            if (a >= 0) {
+                int[][] row = delta[a];
+                for (int q = Bits.nextSetBit(current, 0); q >= 0; q = Bits.nextSetBit(current, q + 1)) {
+                    for (int t : row[q]) {
+                        followed++;
+                        if (!Bits.get(next, t)) {
+                            Bits.or(next, closure[t]);
+                            expansions++;
+                        }
+                    }
+                }
+            }
+            long[] tmp = current;
+            current = next;
+            next = tmp;
+            size = Bits.cardinality(current);
+            peak = Math.max(peak, size);
+            total += size;
+        }
+        boolean accepted = size > 0 && Bits.intersects(current, finals);
+        return new MatchStats(accepted, consumed, peak, total, expansions, followed,
+                consumed < n, System.nanoTime() - begin);
+    }
+
+    /**
+     * Opens a session for input that arrives in chunks. Sessions share this
+     * object, each one only adds its own two active sets.
+     * @return a new session positioned before the first character
+     */
+    public MatcherSession newSession() {
+        return new MatcherSession(this);
+    }
+
+    /**
+     * fills set with the eclosure of the start state
+     */
+    void startSet(long[] set) {
+        Bits.clear(set);
+        if (start >= 0) {
+            Bits.or(set, closure[start]);
+        }
+    }
+
+    /**
+     * computes the eclosure of every state reachable from current on c
+     * @param current, the active set, left untouched
+     * @param next, overwritten with the following active set
+     * @param c, the input character
+     */
+    void step(long[] current, long[] next, char c) {
+        Bits.clear(next);
+        int a = symbolOf(c);
+        if (a < 0) {
+            return;
+        }
+        int[][] row = delta[a];
+        for (int s = Bits.nextSetBit(current, 0); s >= 0; s = Bits.nextSetBit(current, s + 1)) {
+            for (int t : row[s]) {
+                // a state already in next brought its whole closure with it
+                if (!Bits.get(next, t)) {
+                    Bits.or(next, closure[t]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index of c in the input alphabet, or -1 if c labels no transition
+     */
+    int symbolOf(char c) {
+        return classes.classOf(c);
+    }
+
+    /**
+     * @return true if any state in set is final
+     */
+    boolean isAccepting(long[] set) {
+        return Bits.intersects(set, finals);
+    }
+
+    /**
+     * @return a fresh, empty active set sized for this automaton
+     */
+    long[] newSet() {
+        return new long[words];
+    }
+
+    int[] targets(int symbol, int state) {
+        return delta[symbol][state];
+    }
+
+    long[] closure(int state) {
+        return closure[state];
+    }
+
+    boolean isFinal(int state) {
+        return Bits.get(finals, state);
+    }
+
+    int start() {
+        return start;
+    }
+
+    /**
+     * @return a char of the symbol class with the given index
+     */
+    char symbol(int index) {
+        return classes.representative(index);
+    }
+
+    NFAState state(int id) {
+        return states[id];
+    }
+
+    /**
+     * @return the number of states
+     */
+    public int stateCount() {
+        return states.length;
+    }
+
+    /**
+     * @return the number of symbols, the classes the input alphabet (Sigma
+     * plus 'e' when the automaton has epsilon transitions) is split into
+     */
+    public int symbolCount() {
+        return classes.count();
+    }
+
+    /**
+     * @return the input alphabet and its partition into symbol classes
+     */
+    public CharClasses classes() {
+        return classes;
+    }
+}
@@ -0,0 +1,192 @@
+package fa.nfa;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Cache of the eclosure of every state of one NFA, stored as bitsets over
+ * state ids. Closures are computed on demand by condensing the strongly
+ * connected components of the 'e' edges (Tarjan), so every state of a
+ * component shares one bitset and a component's closure is its members plus
+ * the closures of the components it points to.
+ *
+ * The bitsets handed out are never modified. When an 'e' edge p -> q is added
+ * only the closures containing p can change, and only those are dropped.
+ * Lookups are synchronized, so threads matching on an NFA that is not being
+ * changed can fill the cache together without sharing the Tarjan scratch
+ * space.
+ * @author Christian Galvan, Andrew Bates
+ */
+class EClosureTable {
+    private final StateRegistry states;
+    private long[][] closure = new long[16][]; // null when not computed or stale
+    private int valid; // number of non null entries in closure
+
+    // scratch space for Tarjan, index[] holds stamp + preorder number
+    private int[] index = new int[16];
+    private int[] low = new int[16];
+    private int[] stack = new int[16];
+    private int stamp;
+
+    /**
+     * @param states, the registry of the NFA whose closures are cached
+     */
+    EClosureTable(StateRegistry states) {
+        this.states = states;
+    }
+
+    /**
+     * makes room for a state just created by the registry
+     * @param state, the new state
+     */
+    synchronized void add(NFAState state) {
+        int id = state.id();
+        if (id == closure.length) {
+            int size = id * 2;
+            closure = Arrays.copyOf(closure, size);
+            index = Arrays.copyOf(index, size);
+            low = Arrays.copyOf(low, size);
+            stack = Arrays.copyOf(stack, size);
+        }
+    }
+
+    /**
+     * records that an 'e' edge from -> to was added to the automaton
+     */
+    synchronized void epsilonAdded(NFAState from, NFAState to) {
+        long[] before = closure[from.id()];
+        if (valid == 0 || (before != null && Bits.get(before, to.id()))) {
+            return; // nothing cached, or to was already reachable from from
+        }
+        // everything that reaches from can now reach more
+        int p = from.id();
+        for (int s = 0; s < states.size(); s++) {
+            long[] c = closure[s];
+            if (c != null && Bits.get(c, p)) {
+                closure[s] = null;
+                valid--;
+            }
+        }
+    }
+
+    /**
+     * installs a closure computed elsewhere, such as one read back by NFACodec
+     * @param s, a state of the automaton
+     * @param c, the eclosure of s as a bitset over state ids
+     */
+    synchronized void preload(NFAState s, long[] c) {
+        if (closure[s.id()] == null) {
+            valid++;
+        }
+        closure[s.id()] = c;
+    }
+
+    /**
+     * @param s, a state of the automaton
+     * @return the eclosure of s as a bitset over state ids, must not be modified
+     */
+    synchronized long[] get(NFAState s) {
+        long[] c = closure[s.id()];
+        if (c == null) {
+            compute(s.id());
+            c = closure[s.id()];
+        }
+        return c;
+    }
+
+    /**
+     * @param s, a state of the automaton
+     * @return a new set holding the eclosure of s
+     */
+    Set<NFAState> getSet(NFAState s) {
+        long[] c = get(s);
+        Set<NFAState> set = new LinkedHashSet<>();
+        for (int i = Bits.nextSetBit(c, 0); i >= 0; i = Bits.nextSetBit(c, i + 1)) {
+            set.add(states.get(i));
+        }
+        return set;
+    }
+
+    /**
+     * Iterative Tarjan over the stale part of the 'e' graph reachable from root.
+     * States with a cached closure are treated as leaves.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void compute(int root) {
+        int n = states.size();
+        int words = Bits.words(n);
+        if (stamp > Integer.MAX_VALUE - n - 1) {
+            Arrays.fill(index, 0);
+            stamp = 0;
+        }
+        int base = stamp; // index[v] > base means v was visited in this run
+        int counter = base;
+        int top = 0;
+
+        int[] callStack = new int[16];
+        Iterator<NFAState>[] edges = new Iterator[16];
+        int depth = 0;
+
+        callStack[depth] = root;
+        edges[depth++] = states.get(root).toStates('e').iterator();
+        index[root] = low[root] = ++counter;
+        stack[top++] = root;
+
+        while (depth > 0) {
+            int v = callStack[depth - 1];
+            Iterator<NFAState> it = edges[depth - 1];
+            if (it.hasNext()) {
+                int w = it.next().id();
+                if (closure[w] != null) {
+                    continue; // already solved, merged when v's component is closed
+                }
+                if (index[w] <= base) {
+                    index[w] = low[w] = ++counter;
+                    stack[top++] = w;
+                    if (depth == callStack.length) {
+                        callStack = Arrays.copyOf(callStack, depth * 2);
+                        edges = Arrays.copyOf(edges, depth * 2);
+                    }
+                    callStack[depth] = w;
+                    edges[depth++] = states.get(w).toStates('e').iterator();
+                } else if (index[w] > 0) {
+                    low[v] = Math.min(low[v], index[w]); // w is still on the stack
+                }
+                continue;
+            }
+
+            depth--;
+            if (depth > 0) {
+                int parent = callStack[depth - 1];
+                low[parent] = Math.min(low[parent], low[v]);
+            }
+            if (low[v] != index[v]) {
+                continue;
+            }
+
+            // v is the root of a component, pop it and build its closure
+            long[] set = new long[words];
+            int bottom = top;
+            do {
+                Bits.set(set, stack[--bottom]);
+            } while (stack[bottom] != v);
+            for (int i = bottom; i < top; i++) {
+                for (NFAState t : states.get(stack[i]).toStates('e')) {
+                    long[] c = closure[t.id()];
+                    if (c != null) {
+                        Bits.or(set, c);
+                    }
+                }
+            }
+            for (int i = bottom; i < top; i++) {
+                closure[stack[i]] = set;
+                index[stack[i]] = -1; // off the stack, and solved
+                valid++;
+            }
+            top = bottom;
+        }
+        stamp = counter;
+    }
+}
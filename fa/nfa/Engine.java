@@ -0,0 +1,20 @@
+package fa.nfa;
+
+/**
+ * The backends NFA.accepts and NFA.maxCopies can run on. NFA picks one from
+ * the shape of the automaton and keeps it until the next change, NFA.engine()
+ * tells which one is in use.
+ * @author Christian Galvan, Andrew Bates
+ */
+public enum Engine {
+    /** the automaton is deterministic, a walk over its DFATable */
+    DFA_TABLE,
+    /** at most BitParallelNFA.MAX_STATES states, the active set fits in a few longs */
+    BIT_PARALLEL,
+    /** large with dense epsilon edges, a LazyDFA for accepts, maxCopies runs on SIMULATION */
+    LAZY_DFA,
+    /** large with small eclosures, the simulation on sparse sets of SparseSetNFA */
+    SPARSE_SET,
+    /** the bitset simulation of CompiledNFA */
+    SIMULATION
+}
@@ -0,0 +1,64 @@
+package fa.nfa;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Everything one simulation pass learns about an input: the verdict, the
+ * largest number of copies, where the active set died and what it ended as.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class Evaluation {
+    private final CompiledNFA nfa;
+    private final boolean accepted;
+    private final int maxCopies;
+    private final int deathStep;
+    private final long[] finalSet;
+
+    Evaluation(CompiledNFA nfa, boolean accepted, int maxCopies, int deathStep, long[] finalSet) {
+        this.nfa = nfa;
+        this.accepted = accepted;
+        this.maxCopies = maxCopies;
+        this.deathStep = deathStep;
+        this.finalSet = finalSet;
+    }
+
+    /**
+     * @return true if the input was accepted, what accepts returns
+     */
+    public boolean accepted() {
+        return accepted;
+    }
+
+    /**
+     * @return the largest active set seen, what maxCopies returns
+     */
+    public int maxCopies() {
+        return maxCopies;
+    }
+
+    /**
+     * @return how many characters had been consumed when the last copy died,
+     * 0 if the start set was already empty, -1 if some copy survived the input
+     */
+    public int deathStep() {
+        return deathStep;
+    }
+
+    /**
+     * @return the active states after the input, empty if every copy died
+     */
+    public Set<NFAState> finalStates() {
+        Set<NFAState> states = new LinkedHashSet<>();
+        for (int i = Bits.nextSetBit(finalSet, 0); i >= 0; i = Bits.nextSetBit(finalSet, i + 1)) {
+            states.add(nfa.state(i));
+        }
+        return states;
+    }
+
+    @Override
+    public String toString() {
+        return "Evaluation[accepted=" + accepted + ", maxCopies=" + maxCopies
+                + ", deathStep=" + deathStep + ", finalStates=" + finalStates() + "]";
+    }
+}
@@ -0,0 +1,172 @@
+package fa.nfa;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of an NFA, made by NFA.freeze(). It answers every query
+ * of NFAInterface from precomputed tables and rejects every change with an
+ * UnsupportedOperationException, including addTransition on its states.
+ *
+ * Nothing in it is written after construction and everything is reachable
+ * through final fields, so it can be shared freely between threads, virtual
+ * threads included, without any locking.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class FrozenNFA implements NFAInterface {
+    private final CompiledNFA nfa;
+    private final Map<String, NFAState> names;
+    private final Set<Character> Sigma;
+    private final NFAState[] F; // final states in the order they were marked
+    private final boolean dfa;
+
+    /**
+     * @param nfa, the compiled form of a private copy whose states are frozen
+     * @param Sigma, the alphabet of the copy
+     * @param F, the final states of the copy
+     * @param dfa, whether the copy is a DFA
+     */
+    FrozenNFA(CompiledNFA nfa, Set<Character> Sigma, Set<NFAState> F, boolean dfa) {
+        this.nfa = nfa;
+        this.Sigma = Collections.unmodifiableSet(new LinkedHashSet<>(Sigma));
+        this.F = F.toArray(new NFAState[0]);
+        this.dfa = dfa;
+        Map<String, NFAState> byName = new HashMap<>();
+        for (int i = 0; i < nfa.stateCount(); i++) {
+            byName.put(nfa.state(i).getName(), nfa.state(i));
+        }
+        this.names = byName;
+    }
+
+    @Override
+    public boolean accepts(String s) {
+        return nfa.accepts(s);
+    }
+
+    @Override
+    public int maxCopies(String s) {
+        return nfa.maxCopies(s);
+    }
+
+    /**
+     * @param s, the input
+     * @return the verdict, the peak number of copies, where the active set
+     * died and the final active states
+     */
+    public Evaluation evaluate(String s) {
+        return nfa.evaluate(s);
+    }
+
+    @Override
+    public Set<Character> getSigma() {
+        return Sigma;
+    }
+
+    @Override
+    public NFAState getState(String name) {
+        return names.get(name);
+    }
+
+    @Override
+    public boolean isFinal(String name) {
+        NFAState state = names.get(name);
+        return state != null && nfa.isFinal(state.id());
+    }
+
+    @Override
+    public boolean isStart(String name) {
+        NFAState state = names.get(name);
+        return state != null && state.id() == nfa.start();
+    }
+
+    @Override
+    public Set<NFAState> getToState(NFAState from, char onSymb) {
+        return from.toStates(onSymb);
+    }
+
+    /**
+     * @throws IllegalArgumentException if s is not a state of this snapshot
+     */
+    @Override
+    public Set<NFAState> eClosure(NFAState s) {
+        if (s.id() < 0 || s.id() >= nfa.stateCount() || nfa.state(s.id()) != s) {
+            throw new IllegalArgumentException("state " + s + " is not part of this automaton");
+        }
+        long[] closure = nfa.closure(s.id());
+        Set<NFAState> set = new LinkedHashSet<>();
+        for (int i = Bits.nextSetBit(closure, 0); i >= 0; i = Bits.nextSetBit(closure, i + 1)) {
+            set.add(nfa.state(i));
+        }
+        return set;
+    }
+
+    @Override
+    public boolean isDFA() {
+        return dfa;
+    }
+
+    /**
+     * @return the compiled form the queries run on
+     */
+    public CompiledNFA compile() {
+        return nfa;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, a frozen automaton cannot change
+     */
+    @Override
+    public boolean addState(String name) {
+        throw frozen();
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, a frozen automaton cannot change
+     */
+    @Override
+    public boolean setFinal(String name) {
+        throw frozen();
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, a frozen automaton cannot change
+     */
+    @Override
+    public boolean setStart(String name) {
+        throw frozen();
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, a frozen automaton cannot change
+     */
+    @Override
+    public void addSigma(char symbol) {
+        throw frozen();
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, a frozen automaton cannot change
+     */
+    @Override
+    public boolean addTransition(String fromState, Set<String> toStates, char onSymb) {
+        throw frozen();
+    }
+
+    private static UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException("the automaton is frozen");
+    }
+
+    @Override
+    public String toString() {
+        NFAState[] Q = new NFAState[nfa.stateCount()];
+        for (int i = 0; i < Q.length; i++) {
+            Q[i] = nfa.state(i);
+        }
+        NFAState q0 = nfa.start() < 0 ? null : nfa.state(nfa.start());
+        return NFA.describe(Arrays.asList(Q), Sigma, q0, Arrays.asList(F));
+    }
+}
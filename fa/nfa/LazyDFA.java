@@ -0,0 +1,156 @@
+package fa.nfa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Determinizes an NFA on the fly. A DFA state is built the first time the
+ * input reaches its set of NFA states and its transitions are filled in as
+ * they are taken, so repeated inputs only pay one array lookup per character.
+ *
+ * At most capacity DFA states are kept. When the cache is full it is flushed
+ * completely and rebuilt from the current state on, which keeps memory bounded
+ * even for automata whose full DFA is exponentially large.
+ *
+ * Not thread safe, use one instance per thread.
+ * @author Christian Galvan, Andrew Bates
+ */
+public class LazyDFA {
+    /** cache size used by the single argument constructor */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private static final Node DEAD = new Node(null, false, 0);
+
+    private final CompiledNFA nfa;
+    private final int capacity;
+    private final Map<StateSet, Node> cache = new HashMap<>();
+    private Node start; // null after a flush until the next match
+    private long flushes;
+
+    /**
+     * one DFA state: its NFA state set and the transitions taken so far
+     */
+    private static final class Node {
+        final long[] set;
+        final boolean accepting;
+        final Node[] next; // by symbol, null when not computed yet
+
+        Node(long[] set, boolean accepting, int symbols) {
+            this.set = set;
+            this.accepting = accepting;
+            this.next = new Node[symbols];
+        }
+    }
+
+    /**
+     * @param nfa, the automaton to run, later changes to it are not seen
+     */
+    public LazyDFA(NFA nfa) {
+        this(nfa, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param nfa, the automaton to run, later changes to it are not seen
+     * @param capacity, the most DFA states to cache at once
+     */
+    public LazyDFA(NFA nfa, int capacity) {
+        this(nfa.compile(), capacity);
+    }
+
+    /**
+     * @param nfa, the compiled automaton to run
+     * @param capacity, the most DFA states to cache at once
+     */
+    LazyDFA(CompiledNFA nfa, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.nfa = nfa;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Simulates the automaton on s
+     * @param s, the input
+     * @return true if s is accepted, the same answer as NFA.accepts
+     */
+    public boolean accepts(CharSequence s) {
+        if (start == null) {
+            long[] set = nfa.newSet();
+            nfa.startSet(set);
+            start = intern(set);
+        }
+        Node current = start;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            int a = nfa.symbolOf(s.charAt(i));
+            if (a < 0) {
+                return false;
+            }
+            Node next = current.next[a];
+            if (next == null) {
+                next = transition(current, a);
+            }
+            if (next == DEAD) {
+                return false;
+            }
+            current = next;
+        }
+        return current.accepting;
+    }
+
+    /**
+     * @return the number of DFA states currently cached
+     */
+    public int cachedStates() {
+        return cache.size();
+    }
+
+    /**
+     * @return how many times the cache was full and got flushed
+     */
+    public long flushes() {
+        return flushes;
+    }
+
+    /**
+     * builds and caches the transition from current on symbol a
+     */
+    private Node transition(Node current, int a) {
+        long[] set = nfa.newSet();
+        nfa.step(current.set, set, nfa.symbol(a));
+        Node next = Bits.isEmpty(set) ? DEAD : intern(set);
+        current.next[a] = next;
+        return next;
+    }
+
+    /**
+     * @param set, a non empty state set, owned by the cache afterwards
+     * @return the cached DFA state for set
+     */
+    private Node intern(long[] set) {
+        StateSet key = new StateSet(set);
+        Node node = cache.get(key);
+        if (node == null) {
+            if (cache.size() >= capacity) {
+                flush();
+            }
+            node = new Node(set, nfa.isAccepting(set), nfa.symbolCount());
+            cache.put(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * drops every cached state, the links between them are cut so that a
+     * node still held by a running match does not keep the old ones alive
+     */
+    private void flush() {
+        for (Node node : cache.values()) {
+            Arrays.fill(node.next, null);
+        }
+        cache.clear();
+        start = null;
+        flushes++;
+    }
+}
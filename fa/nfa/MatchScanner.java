@@ -0,0 +1,172 @@
+package fa.nfa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds every substring of a text that the automaton accepts, in one left to
+ * right pass. Like a Pike VM it adds the eclosure of the start state back
+ * into the active set at every position, so all candidate start positions are
+ * simulated at once on the same CompiledNFA transitions accepts uses.
+ *
+ * Offsets are char indexes, a match [start, end) is text.subSequence(start,
+ * end). The scanner is stateless between calls and can be shared by threads.
+ * @author Christian Galvan, Andrew Bates
+ */
+public class MatchScanner {
+    private final CompiledNFA nfa;
+
+    /**
+     * a match reported by findAll
+     */
+    public static final class Match {
+        private final int start;
+        private final int end;
+
+        public Match(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return the index of the first character of the match
+         */
+        public int start() {
+            return start;
+        }
+
+        /**
+         * @return the index after the last character of the match
+         */
+        public int end() {
+            return end;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Match && ((Match) o).start == start && ((Match) o).end == end;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * start + end;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + ")";
+        }
+    }
+
+    /**
+     * @param nfa, the automaton to search with, later changes to it are not seen
+     */
+    public MatchScanner(NFA nfa) {
+        this.nfa = nfa.compile();
+    }
+
+    /**
+     * Finds every offset at which some accepted substring ends. The bitset
+     * simulation does not track where matches started, so this is the
+     * cheapest mode.
+     * @param text, the text to search
+     * @return the end offsets in increasing order, 0 to text.length()
+     */
+    public int[] findEnds(CharSequence text) {
+        long[] current = nfa.newSet();
+        long[] next = nfa.newSet();
+        long[] restart = nfa.newSet();
+        nfa.startSet(restart);
+        Bits.or(current, restart);
+
+        int[] ends = new int[16];
+        int count = 0;
+        for (int i = 0, n = text.length(); ; i++) {
+            if (nfa.isAccepting(current)) {
+                if (count == ends.length) {
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                ends[count++] = i;
+            }
+            if (i == n) {
+                break;
+            }
+            nfa.step(current, next, text.charAt(i));
+            Bits.or(next, restart); // a new match may start after this character
+            long[] tmp = current;
+            current = next;
+            next = tmp;
+        }
+        return Arrays.copyOf(ends, count);
+    }
+
+    /**
+     * Finds, for every offset at which an accepted substring ends, the
+     * leftmost offset it can start at, so each match is the longest one
+     * ending there.
+     * @param text, the text to search
+     * @return the matches ordered by end offset
+     */
+    public List<Match> findAll(CharSequence text) {
+        int states = nfa.stateCount();
+        long[] current = nfa.newSet();
+        long[] next = nfa.newSet();
+        int[] currentStart = new int[states]; // leftmost start of the copy in each active state
+        int[] nextStart = new int[states];
+        int start = nfa.start();
+        if (start >= 0) {
+            enter(nfa.closure(start), 0, current, currentStart);
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0, n = text.length(); ; i++) {
+            int leftmost = Integer.MAX_VALUE;
+            for (int s = Bits.nextSetBit(current, 0); s >= 0; s = Bits.nextSetBit(current, s + 1)) {
+                if (nfa.isFinal(s)) {
+                    leftmost = Math.min(leftmost, currentStart[s]);
+                }
+            }
+            if (leftmost != Integer.MAX_VALUE) {
+                matches.add(new Match(leftmost, i));
+            }
+            if (i == n) {
+                break;
+            }
+
+            Bits.clear(next);
+            int a = nfa.symbolOf(text.charAt(i));
+            if (a >= 0) {
+                for (int s = Bits.nextSetBit(current, 0); s >= 0; s = Bits.nextSetBit(current, s + 1)) {
+                    for (int t : nfa.targets(a, s)) {
+                        enter(nfa.closure(t), currentStart[s], next, nextStart);
+                    }
+                }
+            }
+            if (start >= 0) {
+                enter(nfa.closure(start), i + 1, next, nextStart);
+            }
+            long[] tmp = current;
+            current = next;
+            next = tmp;
+            int[] tmpStart = currentStart;
+            currentStart = nextStart;
+            nextStart = tmpStart;
+        }
+        return matches;
+    }
+
+    /**
+     * adds every state of closure to set, keeping the smallest start seen
+     */
+    private static void enter(long[] closure, int from, long[] set, int[] starts) {
+        for (int u = Bits.nextSetBit(closure, 0); u >= 0; u = Bits.nextSetBit(closure, u + 1)) {
+            if (!Bits.get(set, u)) {
+                Bits.set(set, u);
+                starts[u] = from;
+            } else if (from < starts[u]) {
+                starts[u] = from;
+            }
+        }
+    }
+}
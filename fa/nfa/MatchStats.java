@@ -0,0 +1,101 @@
+package fa.nfa;
+
+/**
+ * Counters collected while simulating one input.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class MatchStats {
+    private final boolean accepted;
+    private final int characters;
+    private final int peakActive;
+    private final long totalActive;
+    private final long closureExpansions;
+    private final long transitions;
+    private final boolean diedEarly;
+    private final long nanos;
+
+    MatchStats(boolean accepted, int characters, int peakActive, long totalActive,
+            long closureExpansions, long transitions, boolean diedEarly, long nanos) {
+        this.accepted = accepted;
+        this.characters = characters;
+        this.peakActive = peakActive;
+        this.totalActive = totalActive;
+        this.closureExpansions = closureExpansions;
+        this.transitions = transitions;
+        this.diedEarly = diedEarly;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return true if the input was accepted
+     */
+    public boolean accepted() {
+        return accepted;
+    }
+
+    /**
+     * @return the number of characters consumed, less than the input length
+     * when every copy died early
+     */
+    public int characters() {
+        return characters;
+    }
+
+    /**
+     * @return the largest active set seen, the same as maxCopies
+     */
+    public int peakActive() {
+        return peakActive;
+    }
+
+    /**
+     * @return the sum of the active set sizes over the start set and every step
+     */
+    public long totalActive() {
+        return totalActive;
+    }
+
+    /**
+     * @return the mean active set size over the start set and every step
+     */
+    public double averageActive() {
+        return (double) totalActive / (characters + 1);
+    }
+
+    /**
+     * @return how many eclosures were merged into an active set
+     */
+    public long closureExpansions() {
+        return closureExpansions;
+    }
+
+    /**
+     * @return how many transitions were followed
+     */
+    public long transitions() {
+        return transitions;
+    }
+
+    /**
+     * @return true if the simulation stopped before the end of the input
+     * because no copy was left
+     */
+    public boolean diedEarly() {
+        return diedEarly;
+    }
+
+    /**
+     * @return the wall clock time of the match in nanoseconds
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "MatchStats[accepted=" + accepted + ", characters=" + characters
+                + ", peakActive=" + peakActive + ", averageActive=" + averageActive()
+                + ", closureExpansions=" + closureExpansions + ", transitions=" + transitions
+                + ", diedEarly=" + diedEarly + ", nanos=" + nanos + "]";
+    }
+}
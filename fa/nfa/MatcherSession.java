@@ -0,0 +1,104 @@
+package fa.nfa;
+
+/**
+ * A resumable match over input that arrives in chunks. The session keeps the
+ * active state set between calls to feed, so after any sequence of chunks it
+ * answers exactly like NFA.accepts on their concatenation.
+ *
+ * A session holds two bitsets and a reference to the shared compiled
+ * automaton, so a large number of them can be kept open at once. A single
+ * session is not thread safe.
+ * @author Christian Galvan, Andrew Bates
+ */
+public class MatcherSession {
+    private final CompiledNFA nfa;
+    private long[] current;
+    private long[] next;
+    private boolean dead;
+    private long consumed;
+
+    /**
+     * @param nfa, the automaton the session runs
+     */
+    MatcherSession(CompiledNFA nfa) {
+        this.nfa = nfa;
+        this.current = nfa.newSet();
+        this.next = nfa.newSet();
+        reset();
+    }
+
+    /**
+     * Consumes a chunk of input
+     * @param chunk, the characters to consume
+     * @return false if the automaton is dead, nothing fed later can be accepted
+     */
+    public boolean feed(char[] chunk) {
+        return feed(chunk, 0, chunk.length);
+    }
+
+    /**
+     * Consumes chunk[off .. off + len)
+     * @return false if the automaton is dead, nothing fed later can be accepted
+     */
+    public boolean feed(char[] chunk, int off, int len) {
+        if (off < 0 || len < 0 || off + len > chunk.length) {
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", length " + chunk.length);
+        }
+        for (int i = off, end = off + len; i < end && !dead; i++) {
+            step(chunk[i]);
+        }
+        return !dead;
+    }
+
+    /**
+     * Consumes a chunk of input
+     * @param chunk, the characters to consume
+     * @return false if the automaton is dead, nothing fed later can be accepted
+     */
+    public boolean feed(CharSequence chunk) {
+        for (int i = 0, n = chunk.length(); i < n && !dead; i++) {
+            step(chunk.charAt(i));
+        }
+        return !dead;
+    }
+
+    /**
+     * @return true if the input fed so far is accepted
+     */
+    public boolean isAccepting() {
+        return !dead && nfa.isAccepting(current);
+    }
+
+    /**
+     * @return true if every copy of the automaton has died
+     */
+    public boolean isDead() {
+        return dead;
+    }
+
+    /**
+     * @return how many characters were consumed since the last reset, input
+     * fed after the automaton died is not counted
+     */
+    public long consumed() {
+        return consumed;
+    }
+
+    /**
+     * forgets all input, the session is back at the eclosure of the start state
+     */
+    public void reset() {
+        nfa.startSet(current);
+        dead = Bits.isEmpty(current);
+        consumed = 0;
+    }
+
+    private void step(char c) {
+        nfa.step(current, next, c);
+        long[] tmp = current;
+        current = next;
+        next = tmp;
+        dead = Bits.isEmpty(current);
+        consumed++;
+    }
+}
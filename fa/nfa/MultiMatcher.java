@@ -0,0 +1,94 @@
+package fa.nfa;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Matches one input against many rules in a single pass. The rules are
+ * copied into one automaton under a shared start state, every final state is
+ * tagged with the index of the rule it came from, and the compiled automaton
+ * is stepped once per character exactly as accepts does. The rules that
+ * accept are the tags of the final states left in the active set.
+ *
+ * The shared start state only feeds the start sets of the rules and is left
+ * out of the active set, so every rule sees the input, 'e' included, just as
+ * its own accepts would. Rules are copied when the matcher is created, later
+ * changes to them are not seen. The matcher is immutable and can be shared
+ * between threads.
+ * @author Christian Galvan, Andrew Bates
+ */
+public class MultiMatcher {
+    private final CompiledNFA nfa;
+    private final int[] ruleOf; // state id -> rule of the final state, -1 for other states
+    private final long[] start;
+    private final int rules;
+
+    /**
+     * @param rules, the automata to match against, a rule is its index in the list
+     */
+    public MultiMatcher(List<NFA> rules) {
+        NFA combined = new NFA();
+        NFAState shared = combined.newState("s");
+        combined.setStart("s");
+        int[] offsets = new int[rules.size()]; // id of the first copied state of every rule
+        for (int r = 0; r < rules.size(); r++) {
+            offsets[r] = combined.states().size();
+            NFAState q0 = Operations.copy(rules.get(r), combined, "r" + r + ":")[0];
+            if (q0 != null) {
+                combined.addTransition(shared, 'e', q0);
+            }
+        }
+        ruleOf = new int[combined.states().size()];
+        Arrays.fill(ruleOf, -1);
+        for (int r = 0; r < rules.size(); r++) {
+            for (NFAState f : rules.get(r).finals()) {
+                NFAState copy = combined.state(offsets[r] + f.id());
+                combined.setFinal(copy.getName());
+                ruleOf[copy.id()] = r;
+            }
+        }
+        this.rules = rules.size();
+        this.nfa = combined.compile();
+        this.start = nfa.newSet();
+        nfa.startSet(start);
+        start[shared.id() >>> 6] &= ~(1L << shared.id());
+    }
+
+    /**
+     * @param s, the input
+     * @return bit r is set if rule r accepts s
+     */
+    public BitSet matches(CharSequence s) {
+        long[] current = start.clone();
+        long[] next = nfa.newSet();
+        for (int i = 0, n = s.length(); i < n && !Bits.isEmpty(current); i++) {
+            nfa.step(current, next, s.charAt(i));
+            long[] tmp = current;
+            current = next;
+            next = tmp;
+        }
+        BitSet accepted = new BitSet(rules);
+        for (int q = Bits.nextSetBit(current, 0); q >= 0; q = Bits.nextSetBit(current, q + 1)) {
+            if (ruleOf[q] >= 0) {
+                accepted.set(ruleOf[q]);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * @param s, the input
+     * @return true if at least one rule accepts s
+     */
+    public boolean matchesAny(CharSequence s) {
+        return !matches(s).isEmpty();
+    }
+
+    /**
+     * @return the number of rules
+     */
+    public int ruleCount() {
+        return rules;
+    }
+}
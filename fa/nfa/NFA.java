@@ -1,8 +1,9 @@
 package fa.nfa;
 
+import java.util.ArrayDeque;
 import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.Stack;
+import java.util.function.BiFunction;
 
 import fa.State;
 
@@ -16,6 +17,13 @@ public class NFA implements NFAInterface{
     private Set<Character> Sigma; // alphabet
     private NFAState q0; // start state
     private Set<NFAState> F; // set of final states
+    private StateRegistry registry; // Q indexed by name and id
+    private EClosureTable closures; // cached eclosure of every state
+    private volatile CompiledNFA compiled; // dense form used by accepts and maxCopies, null when stale
+    private volatile AdaptiveMatcher matcher; // engine picked for compiled, stale when built from an older form
+    private final Object lock = new Object(); // guards building compiled and matcher
+    private volatile SimulationListener listener; // null unless instrumentation is on
+    private volatile ResultCache results; // null unless result caching is on
 
     /**
      * Default constructor for the non-deterministic finite automata
@@ -26,19 +34,31 @@ public class NFA implements NFAInterface{
         this.Q = new LinkedHashSet<>();
         this.Sigma = new LinkedHashSet<>();
         this.F = new LinkedHashSet<>();
+        this.registry = new StateRegistry();
+        this.closures = new EClosureTable(registry);
     }
 
     @Override
     public boolean addState(String name) {
-        // Check if a state with the given name already exista
-        for(NFAState state : Q) {
-            if(state.getName().equals(name)) {
-                return false; // Name already exists
-            }
+        return newState(name) != null;
+    }
+
+    /**
+     * adds a state for builders that keep hold of their states instead of
+     * looking them up by name
+     * @param name, the name of the new state
+     * @return the state, or null if the name already exists
+     */
+    NFAState newState(String name) {
+        NFAState state = registry.create(name);
+        if(state == null) {
+            return null; // Name already exists
         }
-        // If passing, add the new state
-        Q.add(new NFAState(name));
-        return true;
+        state.attach(this);
+        Q.add(state);
+        closures.add(state);
+        changed();
+        return state;
     }
 
     @Override
@@ -46,6 +66,7 @@ public class NFA implements NFAInterface{
         NFAState state = (NFAState)getState(name); // Check for state
         if(state != null){
             F.add(state); // Add state
+            changed();
             return true;
         }
         return false;
@@ -56,6 +77,7 @@ public class NFA implements NFAInterface{
         NFAState state = (NFAState)getState(name); // Check for state
         if(state != null) {
             q0 = state; // Set state
+            changed();
             return true;
         }
         return false;
@@ -64,43 +86,135 @@ public class NFA implements NFAInterface{
     @Override
     public void addSigma(char symbol) {
         Sigma.add(symbol);
+        changed();
     }
 
     @Override
     public boolean accepts(String s) {
-        Set<NFAState> current = eClosure(q0);
+        SimulationListener l = listener;
+        if (l != null) {
+            return compile().accepts(s, l);
+        }
+        ResultCache cache = results;
+        return cache != null ? cache.accepts(matcher(), s) : matcher().accepts(s);
+    }
 
-        // iterate each character in string
-        for (char c : s.toCharArray()) {
-            Set<NFAState> next = new LinkedHashSet<>();
-            
-            // iterate current states and get next states from transitions
-            for (NFAState state : current) {
-                Set<NFAState> transitionalStates = state.toStates(c);
-                
-                if (transitionalStates != null) {
-                    next.addAll(transitionalStates);
-                }
-            }
+    /**
+     * Simulates the automaton once on s, accepts and maxCopies are views of
+     * the result
+     * @param s, the input
+     * @return the verdict, the peak number of copies, where the active set
+     * died and the final active states
+     */
+    public Evaluation evaluate(String s) {
+        return compile().evaluate(s);
+    }
 
-            current.clear();
-            
-            // get eclosure for each next state
-            for (NFAState nextState : next) {
-                current.addAll(eClosure(nextState));
-            }
+    /**
+     * Turns instrumentation of accepts and maxCopies on or off
+     * @param listener, receives the counters of every match, null to turn it off
+     */
+    public void setListener(SimulationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return the installed listener, or null if instrumentation is off
+     */
+    public SimulationListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Turns caching of the answers of accepts and maxCopies on or off. The
+     * cache keeps the most recently used inputs and is emptied by every
+     * change to the automaton. Instrumented matches bypass it.
+     * @param capacity, the most inputs to remember, 0 to turn caching off
+     */
+    public void setResultCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        results = capacity == 0 ? null : new ResultCache(capacity);
+    }
+
+    /**
+     * @return the result cache with its statistics, or null if caching is off
+     */
+    public ResultCache getResultCache() {
+        return results;
+    }
+
+    /**
+     * drops everything derived from the automaton, called on every change
+     */
+    private void changed() {
+        compiled = null;
+        ResultCache cache = results;
+        if (cache != null) {
+            cache.invalidate();
         }
+    }
 
-        // check if any are final states
-        for (NFAState state : current) {
-            if (F.contains(state)) {
-                return true;  // string is accepted
+    /**
+     * Freezes the automaton into its dense bitset form. The result is cached
+     * until the next change made through this NFA. Threads matching on an
+     * NFA that is not being changed share one compiled form.
+     * @return the compiled automaton
+     */
+    public CompiledNFA compile() {
+        CompiledNFA c = compiled;
+        if (c == null) {
+            synchronized (lock) {
+                c = compiled;
+                if (c == null) {
+                    c = new CompiledNFA(this);
+                    compiled = c;
+                }
             }
         }
+        return c;
+    }
+
+    /**
+     * Tells which backend accepts and maxCopies run on. The choice is made
+     * from the state count, the density of epsilon edges, the size of the
+     * eclosures, determinism and the size of Sigma, and is kept until the
+     * next change. Instrumented matches always run on SIMULATION. The tables
+     * of the engine, up to 8 MB for BIT_PARALLEL, are only built on the
+     * second match after a change; the first one runs on the simulation.
+     * @return the engine picked for the current automaton
+     */
+    public Engine engine() {
+        return matcher().engine();
+    }
 
-        return false;  // string is not accepted
+    /**
+     * @return the engine for the current automaton, picked on first use after a change
+     */
+    private AdaptiveMatcher matcher() {
+        CompiledNFA c = compile();
+        AdaptiveMatcher m = matcher;
+        if (m == null || m.compiled() != c) {
+            synchronized (lock) {
+                m = matcher;
+                if (m == null || m.compiled() != c) {
+                    m = new AdaptiveMatcher(c, Sigma.size());
+                    matcher = m;
+                }
+            }
+        }
+        return m;
     }
 
+    /**
+     * Opens a session that is fed input chunk by chunk. The session runs on
+     * the compiled form as of this call and does not see later changes.
+     * @return a new session positioned before the first character
+     */
+    public MatcherSession newSession() {
+        return compile().newSession();
+    }
 
     @Override
     public Set<Character> getSigma() {
@@ -109,10 +223,7 @@ public class NFA implements NFAInterface{
 
     @Override
     public NFAState getState(String name) {
-        for (NFAState state : Q) {
-            if (state.getName().equals(name)) return state;
-        }
-        return null;
+        return registry.get(name);
     }
 
     @Override
@@ -132,61 +243,45 @@ public class NFA implements NFAInterface{
         return from.toStates(onSymb);
     }
 
+    /**
+     * The closures of states of this NFA come from the cache, any other state,
+     * standalone or of another NFA, is searched along its own 'e' edges.
+     */
     @Override
     public Set<NFAState> eClosure(NFAState s) {
-        Stack<NFAState> stack = new Stack<>();
-        Set<NFAState> eClosure = new LinkedHashSet<>();
+        if (registry.owns(s)) {
+            return closures.getSet(s);
+        }
+        Set<NFAState> closure = new LinkedHashSet<>();
+        ArrayDeque<NFAState> stack = new ArrayDeque<>();
         stack.push(s);
-        
-        // dfs search for eclosure of a state
-        while(!stack.isEmpty()) {
+        while (!stack.isEmpty()) {
             NFAState current = stack.pop();
-            eClosure.add(current);
-            Set<NFAState> states = current.toStates('e');
-            
-            if(states != null){
-            	// push states that are connected onto stack
-                for (NFAState nfaState : states) {
-                	if(!eClosure.contains(nfaState)) {
-                		stack.push(nfaState);
-                	} 
+            if (closure.add(current)) {
+                for (NFAState t : current.toStates('e')) {
+                    stack.push(t);
                 }
             }
         }
-        return eClosure;
+        return closure;
+    }
+
+    /**
+     * @param s, a state of this NFA
+     * @return the eclosure of s as a bitset over state ids, must not be modified
+     */
+    long[] closureBits(NFAState s) {
+        return closures.get(s);
     }
 
     @Override
     public int maxCopies(String s) {
-        int maxCopies = 0;
-
-        Set<NFAState> current = eClosure(q0);
-        maxCopies = Math.max(maxCopies, current.size());
-
-        // traverse string and get number of copies
-        for (char c : s.toCharArray()) {
-            Set<NFAState> next = new LinkedHashSet<>();
-
-            // iterate current states and get next states
-            for (NFAState state : current) {
-                Set<NFAState> transitionalStates = state.toStates(c);
-                if (transitionalStates != null) {
-                    next.addAll(transitionalStates);
-                }
-            }
-
-            current.clear();
-            
-            // get eclosure for next states
-            for (NFAState nextState : next) {
-                current.addAll(eClosure(nextState));
-            }
-
-            // update our maxCopies
-            maxCopies = Math.max(maxCopies, current.size());
+        SimulationListener l = listener;
+        if (l != null) {
+            return compile().maxCopies(s, l);
         }
-
-        return maxCopies;
+        ResultCache cache = results;
+        return cache != null ? cache.maxCopies(matcher(), s) : matcher().maxCopies(s);
     }
 
     @Override
@@ -197,13 +292,28 @@ public class NFA implements NFAInterface{
             NFAState temp = (NFAState)getState(state);
             
             if(from != null && temp != null && (Sigma.contains(onSymb) || onSymb == 'e')) {
-                from.addTransition(onSymb, temp);
+                addTransition(from, onSymb, temp);
                 added = true;
             }
         }
         return added;
     }
 
+    /**
+     * adds one transition between two states of this NFA, the caller checks
+     * that onSymb is in Sigma or 'e'
+     */
+    void addTransition(NFAState from, char onSymb, NFAState to) {
+        if (!registry.owns(to)) {
+            throw new IllegalArgumentException("state " + to.getName() + " does not belong to this NFA");
+        }
+        from.link(onSymb, to);
+        if (onSymb == 'e') {
+            closures.epsilonAdded(from, to);
+        }
+        changed();
+    }
+
     @Override
     public boolean isDFA() {
         for (NFAState state : Q) {  // for every state in the NFA
@@ -213,15 +323,94 @@ public class NFA implements NFAInterface{
                     return false;
                 }
             }
-            if (state.toStates('e') != null) {  // if there is an epsilon transition
+            if (!state.toStates('e').isEmpty()) {  // if there is an epsilon transition
                 return false;
             }
         }
         return true;
     }
 
+    /**
+     * @param id, the id of a state of this NFA
+     * @return the state
+     */
+    NFAState state(int id) {
+        return registry.get(id);
+    }
+
+    /**
+     * @param s, a state of this NFA
+     * @param closure, the known eclosure of s, used instead of computing it
+     */
+    void preloadClosure(NFAState s, long[] closure) {
+        closures.preload(s, closure);
+    }
+
+    Set<NFAState> states() {
+        return Q;
+    }
+
+    Set<NFAState> finals() {
+        return F;
+    }
+
+    NFAState start() {
+        return q0;
+    }
+
+    /**
+     * Takes an immutable snapshot of the automaton. The snapshot has its own
+     * copy of every state, all caches filled in, and can be read by any number
+     * of threads without locking. Later changes to this NFA do not affect it.
+     * @return the frozen automaton
+     */
+    public FrozenNFA freeze() {
+        NFA copy = new NFA();
+        for (char c : Sigma) {
+            copy.addSigma(c);
+        }
+        for (NFAState state : Q) {
+            copy.addState(state.getName());
+        }
+        for (NFAState state : Q) {
+            NFAState from = copy.registry.get(state.id());
+            for (char c : state.symbols()) {
+                for (NFAState to : state.toStates(c)) {
+                    from.link(c, copy.registry.get(to.id())); // nothing is cached in the copy yet
+                }
+            }
+        }
+        for (NFAState state : F) {
+            copy.setFinal(state.getName());
+        }
+        if (q0 != null) {
+            copy.setStart(q0.getName());
+        }
+        boolean dfa = copy.isDFA();
+        CompiledNFA frozen = copy.compile(); // fills in every closure
+        for (NFAState state : copy.Q) {
+            state.freeze();
+        }
+        return new FrozenNFA(frozen, copy.Sigma, copy.F, dfa);
+    }
+
     @Override
     public String toString() {
+        return describe(Q, Sigma, q0, F);
+    }
+
+    /**
+     * formats an automaton the way toString prints it
+     */
+    static String describe(Iterable<NFAState> Q, Set<Character> Sigma, NFAState q0, Iterable<NFAState> F) {
+        return describe(Q, Sigma, q0, F, NFAState::toStates);
+    }
+
+    /**
+     * formats an automaton whose transitions are looked up through delta
+     */
+    static String describe(Iterable<NFAState> Q, Set<Character> Sigma, NFAState q0, Iterable<NFAState> F,
+            BiFunction<NFAState, Character, Set<NFAState>> delta) {
         StringBuilder sb = new StringBuilder();
         sb.append("Q = { ");
         for (NFAState state : Q) {
@@ -239,7 +428,7 @@ public class NFA implements NFAInterface{
         for (NFAState state : Q) {
             sb.append(state.getName());
             for (char c : Sigma) {
-                Set<NFAState> transitionalStates = state.toStates(c);
+                Set<NFAState> transitionalStates = delta.apply(state, c);
                 sb.append("\t");
                 if (transitionalStates != null) {
                     sb.append("{ ");
@@ -0,0 +1,348 @@
+package fa.nfa;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import fa.dfa.CharClasses;
+import fa.dfa.DFATable;
+
+/**
+ * Versioned binary format for automata, so a service can load a large NFA
+ * from disk instead of replaying every builder call.
+ *
+ * Layout, all numbers big endian:
+ * <pre>
+ * int magic 'NFA!', int version, int flags
+ * int n, then n names as (int length, UTF-8 bytes), in id order
+ * int |Sigma|, then the chars of Sigma in order
+ * int start id or -1
+ * int |F|, then the final ids in the order they were marked
+ * per state: int symbols, then per symbol (char, int targets, target ids)
+ * if CLOSURES: int words, then n closure bitsets of that many longs
+ * if DFA: the determinized table over char classes, see writeTable
+ * </pre>
+ * Reading maps the file and rebuilds the NFA directly by id, so no name is
+ * ever looked up. The loaded NFA prints the same toString as the saved one.
+ * Every count, id and closure is checked against the file and the
+ * automaton before it is used, a bad file fails with an IOException.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class NFACodec {
+    /** store the eclosure of every state so it does not have to be recomputed */
+    public static final int CLOSURES = 1;
+    /** store the determinized table of the automaton */
+    public static final int DFA = 2;
+
+    private static final int MAGIC = 0x4E464121; // "NFA!"
+    private static final int VERSION = 2; // 2 stores the table by char class
+
+    private NFACodec() {
+    }
+
+    /**
+     * @param nfa, the automaton to save
+     * @param file, the file to create or overwrite
+     */
+    public static void write(NFA nfa, Path file) throws IOException {
+        write(nfa, file, 0);
+    }
+
+    /**
+     * @param nfa, the automaton to save
+     * @param file, the file to create or overwrite
+     * @param flags, CLOSURES and / or DFA to store precomputed tables too
+     */
+    public static void write(NFA nfa, Path file, int flags) throws IOException {
+        if ((flags & ~(CLOSURES | DFA)) != 0) {
+            throw new IllegalArgumentException("unknown flags: " + flags);
+        }
+        CompiledNFA compiled = nfa.compile();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(flags);
+
+            int n = compiled.stateCount();
+            out.writeInt(n);
+            for (int i = 0; i < n; i++) {
+                byte[] name = compiled.state(i).getName().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(name.length);
+                out.write(name);
+            }
+            out.writeInt(nfa.getSigma().size());
+            for (char c : nfa.getSigma()) {
+                out.writeChar(c);
+            }
+            out.writeInt(compiled.start());
+            out.writeInt(nfa.finals().size());
+            for (NFAState f : nfa.finals()) {
+                out.writeInt(f.id());
+            }
+            for (int i = 0; i < n; i++) {
+                NFAState state = compiled.state(i);
+                char[] symbols = state.symbols();
+                out.writeInt(symbols.length);
+                for (char c : symbols) {
+                    out.writeChar(c);
+                    Set<NFAState> targets = state.toStates(c);
+                    out.writeInt(targets.size());
+                    for (NFAState t : targets) {
+                        out.writeInt(t.id());
+                    }
+                }
+            }
+
+            if ((flags & CLOSURES) != 0) {
+                int words = Bits.words(n);
+                out.writeInt(words);
+                for (int i = 0; i < n; i++) {
+                    long[] closure = compiled.closure(i);
+                    for (int w = 0; w < words; w++) {
+                        out.writeLong(w < closure.length ? closure[w] : 0L);
+                    }
+                }
+            }
+            if ((flags & DFA) != 0) {
+                writeTable(SubsetConstruction.table(nfa), out);
+            }
+        }
+    }
+
+    /**
+     * int chars, then per class its size and its chars, int states, int
+     * start, states bytes of 0 / 1 for final, then states * classes ints of delta
+     */
+    private static void writeTable(DFATable table, DataOutputStream out) throws IOException {
+        CharClasses classes = table.classes();
+        out.writeInt(classes.size());
+        for (int a = 0; a < classes.count(); a++) {
+            char[] members = classes.members(a);
+            out.writeInt(members.length);
+            for (char c : members) {
+                out.writeChar(c);
+            }
+        }
+        out.writeInt(table.stateCount());
+        out.writeInt(table.start());
+        for (int s = 0; s < table.stateCount(); s++) {
+            out.writeByte(table.isFinal(s) ? 1 : 0);
+        }
+        for (int s = 0; s < table.stateCount(); s++) {
+            for (int a = 0; a < table.symbolCount(); a++) {
+                out.writeInt(table.next(s, a));
+            }
+        }
+    }
+
+    /**
+     * Loads an automaton, with its closures already in place if they were saved
+     * @param file, a file made by write
+     * @return the automaton
+     */
+    public static NFA read(Path file) throws IOException {
+        return read(map(file), file);
+    }
+
+    /**
+     * Loads only the determinized table of a file written with the DFA flag
+     * @param file, a file made by write
+     * @return the table, or null if the file does not hold one
+     */
+    public static DFATable readTable(Path file) throws IOException {
+        ByteBuffer in = map(file);
+        int flags = header(in, file);
+        if ((flags & DFA) == 0) {
+            return null;
+        }
+        try {
+            skipAutomaton(in, flags);
+            return readTable(in);
+        } catch (BufferUnderflowException | IllegalArgumentException | ArithmeticException e) {
+            throw new IOException(file + " is truncated or corrupt", e);
+        }
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is larger than 2 GB");
+            }
+            // the mapping stays valid after the channel is closed
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    private static int header(ByteBuffer in, Path file) throws IOException {
+        if (in.remaining() < 12 || in.getInt() != MAGIC) {
+            throw new IOException(file + " is not an automaton file");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException(file + " has unsupported version " + version);
+        }
+        return in.getInt();
+    }
+
+    private static NFA read(ByteBuffer in, Path file) throws IOException {
+        int flags = header(in, file);
+        try {
+            NFA nfa = new NFA();
+            int n = count(in, 8); // a name length and a symbol count per state at least
+            for (int i = 0; i < n; i++) {
+                byte[] name = new byte[count(in, 1)];
+                in.get(name);
+                if (!nfa.addState(new String(name, StandardCharsets.UTF_8))) {
+                    throw new IOException(file + " repeats a state name");
+                }
+            }
+            int sigma = count(in, 2);
+            for (int i = 0; i < sigma; i++) {
+                nfa.addSigma(in.getChar());
+            }
+            int start = in.getInt();
+            if (start != -1) {
+                nfa.setStart(nfa.state(id(start, n)).getName());
+            }
+            int finals = count(in, 4);
+            for (int i = 0; i < finals; i++) {
+                nfa.setFinal(nfa.state(id(in.getInt(), n)).getName());
+            }
+            for (int i = 0; i < n; i++) {
+                NFAState from = nfa.state(i);
+                int symbols = count(in, 6);
+                for (int k = 0; k < symbols; k++) {
+                    char c = in.getChar();
+                    if (c != 'e' && !nfa.getSigma().contains(c)) {
+                        throw new IllegalArgumentException("symbol " + c + " is not in Sigma");
+                    }
+                    int targets = count(in, 4);
+                    for (int j = 0; j < targets; j++) {
+                        // a fresh automaton has nothing cached, so this skips NFA.addTransition
+                        from.link(c, nfa.state(id(in.getInt(), n)));
+                    }
+                }
+            }
+            if ((flags & CLOSURES) != 0) {
+                int words = in.getInt();
+                if (words != Bits.words(n)) {
+                    throw new IllegalArgumentException("closures of " + words + " words for " + n + " states");
+                }
+                need(in, 8L * words * n);
+                for (int i = 0; i < n; i++) {
+                    long[] closure = new long[words];
+                    for (int w = 0; w < words; w++) {
+                        closure[w] = in.getLong();
+                    }
+                    if (!Bits.get(closure, i) || (n & 63) != 0 && closure[words - 1] >>> (n & 63) != 0) {
+                        throw new IllegalArgumentException("bad closure of state " + i);
+                    }
+                    nfa.preloadClosure(nfa.state(i), closure);
+                }
+            }
+            return nfa;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException(file + " is truncated or corrupt", e);
+        }
+    }
+
+    private static void skipAutomaton(ByteBuffer in, int flags) {
+        int n = in.getInt();
+        for (int i = 0; i < n; i++) {
+            skip(in, in.getInt()); // name
+        }
+        skip(in, 2 * in.getInt()); // Sigma
+        in.getInt(); // start
+        skip(in, 4 * in.getInt()); // F
+        for (int i = 0; i < n; i++) {
+            int symbols = in.getInt();
+            for (int k = 0; k < symbols; k++) {
+                in.getChar();
+                skip(in, 4 * in.getInt());
+            }
+        }
+        if ((flags & CLOSURES) != 0) {
+            skip(in, 8L * in.getInt() * n);
+        }
+    }
+
+    private static void skip(ByteBuffer in, long bytes) {
+        if (bytes < 0 || bytes > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        in.position(in.position() + (int) bytes);
+    }
+
+    /**
+     * reads a count of items taking at least size bytes each
+     * @throws IllegalArgumentException if the count is negative or the items cannot fit in what is left
+     */
+    private static int count(ByteBuffer in, int size) {
+        int count = in.getInt();
+        if (count < 0) {
+            throw new IllegalArgumentException("negative count " + count);
+        }
+        need(in, (long) count * size);
+        return count;
+    }
+
+    /**
+     * @throws IllegalArgumentException if fewer than bytes are left
+     */
+    private static void need(ByteBuffer in, long bytes) {
+        if (bytes > in.remaining()) {
+            throw new IllegalArgumentException(bytes + " bytes needed, " + in.remaining() + " left");
+        }
+    }
+
+    /**
+     * @return id, checked to be a state of an automaton with n states
+     */
+    private static int id(int id, int n) {
+        if (id < 0 || id >= n) {
+            throw new IllegalArgumentException("state id " + id + " out of range");
+        }
+        return id;
+    }
+
+    private static DFATable readTable(ByteBuffer in) {
+        char[] chars = new char[count(in, 2)];
+        int[] classOf = new int[chars.length];
+        int width = 0;
+        for (int i = 0; i < chars.length; width++) {
+            int members = in.getInt();
+            if (members <= 0 || members > chars.length - i) {
+                throw new IllegalArgumentException("bad class size " + members);
+            }
+            for (int k = 0; k < members; k++, i++) {
+                chars[i] = in.getChar();
+                classOf[i] = width;
+            }
+        }
+        CharClasses classes = new CharClasses(chars, classOf);
+        int states = in.getInt();
+        if (states <= 0) {
+            throw new IllegalArgumentException("bad state count " + states);
+        }
+        int start = id(in.getInt(), states);
+        need(in, states + 4L * states * width);
+        boolean[] finals = new boolean[states];
+        for (int s = 0; s < states; s++) {
+            finals[s] = in.get() != 0;
+        }
+        int[] delta = new int[Math.multiplyExact(states, width)];
+        for (int i = 0; i < delta.length; i++) {
+            int t = in.getInt();
+            delta[i] = t == DFATable.DEAD ? t : id(t, states);
+        }
+        return new DFATable(classes, delta, finals, start);
+    }
+}
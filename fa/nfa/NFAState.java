@@ -1,57 +1,137 @@
 package fa.nfa;
 
-import java.util.HashMap;
-import java.util.LinkedHashSet;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Set;
 
 import fa.State;
 
 /**
  * NFAState object that can specify a set of transitions that a state can take
+ * Transitions are kept in two parallel arrays sorted by symbol, which costs
+ * far less memory than a map of sets and lets lookups run without boxing.
  * Date: Sun 22 Oct 2023
  * @author Christian Galvan, Andrew Bates
  */
 public class NFAState extends State{
-    private Map<Character, Set<NFAState>> transitions;
+    private static final char[] NO_SYMBOLS = new char[0];
+    private static final TargetSet[] NO_TARGETS = new TargetSet[0];
+
+    private char[] symbols; // symbols with at least one transition, sorted
+    private TargetSet[] targets; // targets[i] are the states reached on symbols[i]
+    private int id; // position of the state in its NFA, -1 if not owned by one
+    private boolean frozen; // true once the state belongs to a FrozenNFA
+    private NFA owner; // the NFA that created the state, null for a standalone state
 
     /**
      * constructs a NFAState object with a name
      * @param name, the name of the state
      */
     public NFAState(String name) {
+        this(name, -1);
+    }
+
+    /**
+     * constructs a NFAState object owned by an NFA
+     * @param name, the name of the state
+     * @param id, the index of the state in its NFA
+     */
+    NFAState(String name, int id) {
         super(name);
-        transitions = new HashMap<>();
+        this.id = id;
+        symbols = NO_SYMBOLS;
+        targets = NO_TARGETS;
+    }
+
+    /**
+     * @return the index of this state in the NFA that created it
+     */
+    int id() {
+        return id;
+    }
+
+    /**
+     * records the NFA that created this state, so changes made through the
+     * state reach the caches of that NFA
+     */
+    void attach(NFA owner) {
+        this.owner = owner;
     }
 
     /**
-     * Adds a transition from this state to another state
+     * Adds a transition from this state to another state. For a state of an
+     * NFA this goes through the NFA, which drops everything it derived from
+     * the old transitions.
      * @param onSymb, the symbol on which the transition occurs
      * @param toState, the state where transition leads
+     * @throws UnsupportedOperationException if the state belongs to a FrozenNFA
+     * @throws IllegalArgumentException if this state belongs to an NFA and
+     * toState does not, or onSymb is neither in its Sigma nor 'e'
      */
     public void addTransition(char onSymb, NFAState toState) {
-        Set<NFAState> temp = transitions.get(onSymb);
-        if (temp == null) {
-            temp = new LinkedHashSet<>();
-            transitions.put(onSymb, temp);
+        if (frozen) {
+            throw new UnsupportedOperationException("state " + getName() + " is frozen");
         }
-        if (!temp.contains(toState)) {
-            temp.add(toState);
+        if (owner != null) {
+            if (onSymb != 'e' && !owner.getSigma().contains(onSymb)) {
+                throw new IllegalArgumentException("symbol " + onSymb + " is not in Sigma");
+            }
+            owner.addTransition(this, onSymb, toState);
+        } else {
+            link(onSymb, toState);
         }
     }
 
+    /**
+     * adds the transition to the arrays only, the owning NFA, if any, is not told
+     */
+    void link(char onSymb, NFAState toState) {
+        int i = Arrays.binarySearch(symbols, onSymb);
+        if (i < 0) {
+            // first transition on this symbol, open a slot keeping the order
+            i = -i - 1;
+            char[] s = new char[symbols.length + 1];
+            TargetSet[] t = new TargetSet[targets.length + 1];
+            System.arraycopy(symbols, 0, s, 0, i);
+            System.arraycopy(targets, 0, t, 0, i);
+            System.arraycopy(symbols, i, s, i + 1, symbols.length - i);
+            System.arraycopy(targets, i, t, i + 1, targets.length - i);
+            s[i] = onSymb;
+            t[i] = new TargetSet();
+            symbols = s;
+            targets = t;
+        }
+        targets[i].insert(toState);
+    }
+
     /**
      * get the set of states where this state goes to
-     * if there is no transition on the symbol, an empty set is returned
+     * if there is no transition on the symbol, a shared empty set is returned
      * @param onSymb, The symbol on which the transition occurs.
-     * @return The set of states reached by the transition.
+     * @return The read only set of states reached by the transition.
      */
     public Set<NFAState> toStates(char onSymb) {
-        Set<NFAState> states = transitions.get(onSymb);
-        if (states == null) {
-            return new LinkedHashSet<>();
+        int i = Arrays.binarySearch(symbols, onSymb);
+        if (i < 0) {
+            return Collections.emptySet();
         }
-        return states;
+        return targets[i];
+    }
+
+    /**
+     * makes the state read only for good
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * get every symbol this state has an outgoing transition on, including 'e'
+     * @return the symbols labelling this state's transitions in ascending
+     * order, must not be modified
+     */
+    char[] symbols() {
+        return symbols;
     }
 
 }
@@ -0,0 +1,688 @@
+package fa.nfa;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read only automaton whose whole content lives outside the Java heap, in a
+ * direct ByteBuffer or a memory mapped file. It is meant for automata with
+ * millions of states, where NFAState objects and their sets would make the
+ * heap huge and the GC pauses long.
+ *
+ * Transitions are stored in CSR form: for every (state, symbol) pair an offset
+ * into one array of target ids, so the targets of state s on symbol a are
+ * targets[rows[s * symbols + a] .. rows[s * symbols + a + 1]). State names
+ * and a hash table from name to id are stored in the same buffer.
+ *
+ * Simulation follows the edges straight from the buffer. Eclosures are not
+ * precomputed, they are walked on the fly, so the only heap used by accepts is
+ * the active set. NFAState objects are created, frozen, only for the states a
+ * caller asks for through getState, getToState or eClosure. They carry no
+ * transitions of their own, query them through this class.
+ *
+ * Answers are the same as NFA gives, including 'e' in the input following the
+ * epsilon transitions. A buffer holds at most 2 GB. Nothing is written after
+ * construction, so one instance can be shared by threads.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class OffHeapNFA implements NFAInterface {
+    private static final int MAGIC = 0x4E464148; // "NFAH"
+    private static final int VERSION = 1;
+    private static final int HEADER = 10; // ints
+
+    private final ByteBuffer buf;
+    private final Layout at;
+    private final int n;
+    private final int symbolCount;
+    private final int start; // -1 if there is none
+    private final char[] symbols;
+    private final int[] symbolIndex; // char -> symbol index, -1 if the char labels nothing
+    private final int epsilon; // symbol index of 'e', -1 if no state has an 'e' edge
+    private final Set<Character> Sigma;
+    private final ConcurrentHashMap<Integer, NFAState> materialized = new ConcurrentHashMap<>();
+
+    /**
+     * byte offsets of the sections of the buffer
+     */
+    private static final class Layout {
+        final int symbols;
+        final int sigma;
+        final int finals; // ids in the order they were marked
+        final int finalBits;
+        final int rows;
+        final int targets;
+        final int nameStart;
+        final int names;
+        final int hash;
+        final long size;
+
+        Layout(int n, int symbolCount, int sigmaCount, int finalCount, long targetCount, long nameChars, int hashSize) {
+            long p = 4L * HEADER;
+            symbols = (int) p;
+            p += align(2L * symbolCount);
+            sigma = (int) p;
+            p += align(2L * sigmaCount);
+            finals = (int) p;
+            p += 4L * finalCount;
+            finalBits = (int) p;
+            p += 4L * ((n + 31) / 32);
+            rows = (int) p;
+            p += 4L * ((long) n * symbolCount + 1);
+            targets = (int) Math.min(p, Integer.MAX_VALUE);
+            p += 4L * targetCount;
+            nameStart = (int) Math.min(p, Integer.MAX_VALUE);
+            p += 4L * (n + 1);
+            names = (int) Math.min(p, Integer.MAX_VALUE);
+            p += align(2L * nameChars);
+            hash = (int) Math.min(p, Integer.MAX_VALUE);
+            p += 4L * hashSize;
+            size = p;
+        }
+
+        private static long align(long bytes) {
+            return (bytes + 3) & ~3L;
+        }
+    }
+
+    private OffHeapNFA(ByteBuffer buf) {
+        if (buf.capacity() < 4 * HEADER || buf.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("the buffer does not hold an off heap automaton");
+        }
+        if (buf.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("unsupported version " + buf.getInt(4));
+        }
+        this.buf = buf;
+        n = buf.getInt(8);
+        symbolCount = buf.getInt(12);
+        int sigmaCount = buf.getInt(16);
+        start = buf.getInt(20);
+        int finalCount = buf.getInt(24);
+        int targetCount = buf.getInt(28);
+        int nameChars = buf.getInt(32);
+        int hashSize = buf.getInt(36);
+        if ((n | symbolCount | sigmaCount | finalCount | targetCount | nameChars) < 0) {
+            throw new IllegalArgumentException("the buffer holds a negative count");
+        }
+        if (Integer.bitCount(hashSize) != 1 || hashSize <= n) {
+            throw new IllegalArgumentException("bad name table size " + hashSize);
+        }
+        if (start < -1 || start >= n) {
+            throw new IllegalArgumentException("start id " + start + " out of range");
+        }
+        at = new Layout(n, symbolCount, sigmaCount, finalCount, targetCount, nameChars, hashSize);
+        if (at.size > buf.capacity()) {
+            throw new IllegalArgumentException("the buffer is truncated");
+        }
+        validate(finalCount, targetCount, nameChars, hashSize);
+
+        symbols = new char[symbolCount];
+        int maxChar = -1;
+        for (int a = 0; a < symbolCount; a++) {
+            symbols[a] = buf.getChar(at.symbols + 2 * a);
+            maxChar = Math.max(maxChar, symbols[a]);
+        }
+        symbolIndex = new int[maxChar + 1];
+        Arrays.fill(symbolIndex, -1);
+        for (int a = 0; a < symbolCount; a++) {
+            if (symbolIndex[symbols[a]] >= 0) {
+                throw new IllegalArgumentException("symbol " + symbols[a] + " is stored twice");
+            }
+            symbolIndex[symbols[a]] = a;
+        }
+        epsilon = symbolOf('e');
+        Set<Character> sigma = new LinkedHashSet<>();
+        for (int i = 0; i < sigmaCount; i++) {
+            sigma.add(buf.getChar(at.sigma + 2 * i));
+        }
+        Sigma = Collections.unmodifiableSet(sigma);
+    }
+
+    /**
+     * checks every id and offset stored in the sections, so a corrupt or
+     * hostile buffer is rejected here instead of failing or looping at match time
+     */
+    private void validate(int finalCount, int targetCount, int nameChars, int hashSize) {
+        for (int i = 0; i < finalCount; i++) {
+            int f = buf.getInt(at.finals + 4 * i);
+            if (f < 0 || f >= n) {
+                throw new IllegalArgumentException("final id " + f + " out of range");
+            }
+        }
+        int previous = 0;
+        for (long r = 0, rows = (long) n * symbolCount; r <= rows; r++) {
+            int offset = buf.getInt(at.rows + 4 * (int) r);
+            if (offset < previous || offset > targetCount || (r == 0 && offset != 0) || (r == rows && offset != targetCount)) {
+                throw new IllegalArgumentException("bad transition row offset " + offset);
+            }
+            previous = offset;
+        }
+        for (int k = 0; k < targetCount; k++) {
+            int t = target(k);
+            if (t < 0 || t >= n) {
+                throw new IllegalArgumentException("target id " + t + " out of range");
+            }
+        }
+        previous = 0;
+        for (int s = 0; s <= n; s++) {
+            int offset = buf.getInt(at.nameStart + 4 * s);
+            if (offset < previous || offset > nameChars || (s == 0 && offset != 0) || (s == n && offset != nameChars)) {
+                throw new IllegalArgumentException("bad name offset " + offset);
+            }
+            previous = offset;
+        }
+        boolean empty = false;
+        for (int slot = 0; slot < hashSize; slot++) {
+            int entry = buf.getInt(at.hash + 4 * slot);
+            if (entry < 0 || entry > n) {
+                throw new IllegalArgumentException("name table entry " + entry + " out of range");
+            }
+            empty |= entry == 0;
+        }
+        if (!empty) {
+            throw new IllegalArgumentException("the name table has no empty slot");
+        }
+    }
+
+    /**
+     * Copies an automaton into a direct buffer, later changes to the NFA are
+     * not seen
+     * @param nfa, the automaton to copy
+     * @return the off heap automaton
+     * @throws IllegalArgumentException if the automaton needs more than 2 GB
+     */
+    public static OffHeapNFA of(NFA nfa) {
+        Encoder encoder = new Encoder(nfa);
+        ByteBuffer buf = ByteBuffer.allocateDirect((int) encoder.layout.size).order(ByteOrder.LITTLE_ENDIAN);
+        encoder.encode(buf);
+        return new OffHeapNFA(buf);
+    }
+
+    /**
+     * Writes the off heap image of an automaton to a file, to be mapped later
+     * @param nfa, the automaton to save
+     * @param file, the file to create or overwrite
+     * @throws IllegalArgumentException if the automaton needs more than 2 GB
+     */
+    public static void write(NFA nfa, Path file) throws IOException {
+        Encoder encoder = new Encoder(nfa);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, encoder.layout.size);
+            encoder.encode(buf.order(ByteOrder.LITTLE_ENDIAN));
+            buf.force();
+        }
+    }
+
+    /**
+     * Maps a file made by write. Every count, id and offset in it is checked
+     * once, a file that fails the checks is rejected with an IOException.
+     * @param file, the image of an automaton
+     * @return the automaton backed by the mapping
+     */
+    public static OffHeapNFA map(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is larger than 2 GB");
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new OffHeapNFA(buf.order(ByteOrder.LITTLE_ENDIAN));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the number of bytes the automaton takes off heap
+     */
+    public long byteSize() {
+        return at.size;
+    }
+
+    /**
+     * @return the number of states
+     */
+    public int stateCount() {
+        return n;
+    }
+
+    @Override
+    public boolean accepts(String s) {
+        return accepts((CharSequence) s);
+    }
+
+    /**
+     * @param s, the input, read in place without copying
+     * @return true if s is accepted
+     */
+    public boolean accepts(CharSequence s) {
+        return run(s, null).accepting();
+    }
+
+    @Override
+    public int maxCopies(String s) {
+        int[] max = new int[1];
+        run(s, max);
+        return max[0];
+    }
+
+    /**
+     * runs the simulation on s and returns the last active set, max[0] gets
+     * the largest active set seen if max is not null
+     */
+    private ActiveSet run(CharSequence s, int[] max) {
+        ActiveSet current = new ActiveSet();
+        ActiveSet next = new ActiveSet();
+        if (start >= 0) {
+            current.add(start);
+            current.close();
+        }
+        int peak = current.size;
+        for (int i = 0, length = s.length(); i < length && current.size > 0; i++) {
+            int a = symbolOf(s.charAt(i));
+            if (a >= 0) {
+                for (int k = 0; k < current.size; k++) {
+                    int row = row(current.list[k], a);
+                    for (int t = buf.getInt(row), end = buf.getInt(row + 4); t < end; t++) {
+                        next.add(target(t));
+                    }
+                }
+                next.close();
+            }
+            current.clear();
+            ActiveSet tmp = current;
+            current = next;
+            next = tmp;
+            peak = Math.max(peak, current.size);
+        }
+        if (max != null) {
+            max[0] = peak;
+        }
+        return current;
+    }
+
+    /**
+     * active states as a list in insertion order plus a bitset for membership,
+     * so sparse sets are walked without scanning every word
+     */
+    private final class ActiveSet {
+        private int[] list = new int[16];
+        private int size;
+        private final long[] member = new long[Bits.words(n)];
+
+        void add(int state) {
+            if (!Bits.get(member, state)) {
+                Bits.set(member, state);
+                if (size == list.length) {
+                    list = Arrays.copyOf(list, size * 2);
+                }
+                list[size++] = state;
+            }
+        }
+
+        /**
+         * adds everything reachable over 'e' edges, the list is the work queue
+         */
+        void close() {
+            if (epsilon < 0) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                int row = row(list[i], epsilon);
+                for (int t = buf.getInt(row), end = buf.getInt(row + 4); t < end; t++) {
+                    add(target(t));
+                }
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                member[list[i] >>> 6] = 0L;
+            }
+            size = 0;
+        }
+
+        boolean accepting() {
+            for (int i = 0; i < size; i++) {
+                if (isFinal(list[i])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private int symbolOf(char c) {
+        return c < symbolIndex.length ? symbolIndex[c] : -1;
+    }
+
+    /**
+     * @return the byte offset of the row start of (state, symbol)
+     */
+    private int row(int state, int symbol) {
+        return at.rows + 4 * (state * symbolCount + symbol);
+    }
+
+    private int target(int k) {
+        return buf.getInt(at.targets + 4 * k);
+    }
+
+    private boolean isFinal(int id) {
+        return (buf.getInt(at.finalBits + 4 * (id >>> 5)) >>> (id & 31) & 1) != 0;
+    }
+
+    /**
+     * @return the NFAState standing for id, the same object every time
+     */
+    private NFAState state(int id) {
+        return materialized.computeIfAbsent(id, i -> {
+            NFAState state = new NFAState(name(i), i);
+            state.freeze();
+            return state;
+        });
+    }
+
+    private String name(int id) {
+        int from = buf.getInt(at.nameStart + 4 * id);
+        int to = buf.getInt(at.nameStart + 4 * (id + 1));
+        char[] chars = new char[to - from];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = buf.getChar(at.names + 2 * (from + i));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return the id of the state called name, -1 if there is none
+     */
+    private int lookup(String name) {
+        int mask = buf.getInt(36) - 1;
+        for (int slot = spread(name.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = buf.getInt(at.hash + 4 * slot);
+            if (entry == 0) {
+                return -1;
+            }
+            if (nameEquals(entry - 1, name)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private boolean nameEquals(int id, String name) {
+        int from = buf.getInt(at.nameStart + 4 * id);
+        int to = buf.getInt(at.nameStart + 4 * (id + 1));
+        if (to - from != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (buf.getChar(at.names + 2 * (from + i)) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the id of s, checking that it was handed out by this automaton
+     * @throws IllegalArgumentException if it was not
+     */
+    private int idOf(NFAState s) {
+        int id = s.id();
+        if (id < 0 || id >= n || materialized.get(id) != s) {
+            throw new IllegalArgumentException("state " + s + " is not part of this automaton");
+        }
+        return id;
+    }
+
+    @Override
+    public Set<Character> getSigma() {
+        return Sigma;
+    }
+
+    @Override
+    public NFAState getState(String name) {
+        int id = lookup(name);
+        return id < 0 ? null : state(id);
+    }
+
+    @Override
+    public boolean isFinal(String name) {
+        int id = lookup(name);
+        return id >= 0 && isFinal(id);
+    }
+
+    @Override
+    public boolean isStart(String name) {
+        int id = lookup(name);
+        return id >= 0 && id == start;
+    }
+
+    /**
+     * @throws IllegalArgumentException if from is not a state of this automaton
+     */
+    @Override
+    public Set<NFAState> getToState(NFAState from, char onSymb) {
+        int a = symbolOf(onSymb);
+        int id = idOf(from);
+        if (a < 0) {
+            return Collections.emptySet();
+        }
+        int row = row(id, a);
+        Set<NFAState> set = new LinkedHashSet<>();
+        for (int t = buf.getInt(row), end = buf.getInt(row + 4); t < end; t++) {
+            set.add(state(target(t)));
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * @throws IllegalArgumentException if s is not a state of this automaton
+     */
+    @Override
+    public Set<NFAState> eClosure(NFAState s) {
+        ActiveSet closure = new ActiveSet();
+        closure.add(idOf(s));
+        closure.close();
+        int[] ids = Arrays.copyOf(closure.list, closure.size);
+        Arrays.sort(ids);
+        Set<NFAState> set = new LinkedHashSet<>();
+        for (int id : ids) {
+            set.add(state(id));
+        }
+        return set;
+    }
+
+    /**
+     * @return true if every state has exactly one transition on each symbol
+     * of Sigma and no 'e' transition
+     */
+    @Override
+    public boolean isDFA() {
+        for (int s = 0; s < n; s++) {
+            if (epsilon >= 0 && buf.getInt(row(s, epsilon)) != buf.getInt(row(s, epsilon) + 4)) {
+                return false;
+            }
+            for (char c : Sigma) {
+                int row = row(s, symbolOf(c));
+                if (buf.getInt(row + 4) - buf.getInt(row) != 1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, an off heap automaton cannot change
+     */
+    @Override
+    public boolean addState(String name) {
+        throw readOnly();
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, an off heap automaton cannot change
+     */
+    @Override
+    public boolean setFinal(String name) {
+        throw readOnly();
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, an off heap automaton cannot change
+     */
+    @Override
+    public boolean setStart(String name) {
+        throw readOnly();
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, an off heap automaton cannot change
+     */
+    @Override
+    public void addSigma(char symbol) {
+        throw readOnly();
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, an off heap automaton cannot change
+     */
+    @Override
+    public boolean addTransition(String fromState, Set<String> toStates, char onSymb) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("the automaton is read only");
+    }
+
+    @Override
+    public String toString() {
+        List<NFAState> Q = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Q.add(state(i));
+        }
+        List<NFAState> F = new ArrayList<>();
+        for (int i = 0, count = buf.getInt(24); i < count; i++) {
+            F.add(state(buf.getInt(at.finals + 4 * i)));
+        }
+        NFAState q0 = start < 0 ? null : state(start);
+        return NFA.describe(Q, Sigma, q0, F, this::getToState);
+    }
+
+    /**
+     * measures an NFA and lays it out into a buffer
+     */
+    private static final class Encoder {
+        private final NFA nfa;
+        private final NFAState[] states;
+        private final char[] symbols;
+        private final long targetCount;
+        private final long nameChars;
+        private final int hashSize;
+        final Layout layout;
+
+        Encoder(NFA nfa) {
+            this.nfa = nfa;
+            states = nfa.states().toArray(new NFAState[0]);
+            // the input alphabet is Sigma plus whatever labels a transition ('e')
+            Set<Character> alphabet = new TreeSet<>(nfa.getSigma());
+            long targets = 0;
+            long chars = 0;
+            for (NFAState state : states) {
+                for (char c : state.symbols()) {
+                    alphabet.add(c);
+                    targets += state.toStates(c).size();
+                }
+                chars += state.getName().length();
+            }
+            symbols = new char[alphabet.size()];
+            int k = 0;
+            for (char c : alphabet) {
+                symbols[k++] = c;
+            }
+            targetCount = targets;
+            nameChars = chars;
+            long slots = Long.highestOneBit(Math.max(1, states.length) * 2L - 1) << 1;
+            hashSize = (int) Math.min(slots, Integer.MAX_VALUE);
+            layout = new Layout(states.length, symbols.length, nfa.getSigma().size(), nfa.finals().size(),
+                    targetCount, nameChars, hashSize);
+            if (layout.size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("the automaton needs " + layout.size + " bytes, more than one buffer holds");
+            }
+        }
+
+        void encode(ByteBuffer buf) {
+            int n = states.length;
+            NFAState q0 = nfa.start();
+            int[] header = {MAGIC, VERSION, n, symbols.length, nfa.getSigma().size(), q0 == null ? -1 : q0.id(),
+                    nfa.finals().size(), (int) targetCount, (int) nameChars, hashSize};
+            for (int i = 0; i < HEADER; i++) {
+                buf.putInt(4 * i, header[i]);
+            }
+            for (int a = 0; a < symbols.length; a++) {
+                buf.putChar(layout.symbols + 2 * a, symbols[a]);
+            }
+            int i = 0;
+            for (char c : nfa.getSigma()) {
+                buf.putChar(layout.sigma + 2 * i++, c);
+            }
+            i = 0;
+            for (NFAState f : nfa.finals()) {
+                buf.putInt(layout.finals + 4 * i++, f.id());
+                int word = layout.finalBits + 4 * (f.id() >>> 5);
+                buf.putInt(word, buf.getInt(word) | 1 << (f.id() & 31));
+            }
+
+            int k = 0;
+            int row = layout.rows;
+            for (NFAState state : states) {
+                char[] own = state.symbols();
+                int j = 0;
+                for (char c : symbols) {
+                    buf.putInt(row, k);
+                    row += 4;
+                    if (j < own.length && own[j] == c) {
+                        for (NFAState t : state.toStates(c)) {
+                            buf.putInt(layout.targets + 4 * k++, t.id());
+                        }
+                        j++;
+                    }
+                }
+            }
+            buf.putInt(row, k);
+
+            int offset = 0;
+            int mask = hashSize - 1;
+            for (int s = 0; s < n; s++) {
+                String name = states[s].getName();
+                buf.putInt(layout.nameStart + 4 * s, offset);
+                for (int c = 0; c < name.length(); c++) {
+                    buf.putChar(layout.names + 2 * offset++, name.charAt(c));
+                }
+                int slot = spread(name.hashCode()) & mask;
+                while (buf.getInt(layout.hash + 4 * slot) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                buf.putInt(layout.hash + 4 * slot, s + 1);
+            }
+            buf.putInt(layout.nameStart + 4 * n, offset);
+        }
+    }
+}
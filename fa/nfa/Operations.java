@@ -0,0 +1,273 @@
+package fa.nfa;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import fa.dfa.DFATable;
+
+/**
+ * Builds new automata out of existing ones. The operands are never changed
+ * and the results share no state with them.
+ *
+ * union, concat and star join copies of their operands, the copied states
+ * are prefixed with 1: and 2: so their names stay apart. They are not glued
+ * with 'e' edges: an 'e' in the input follows 'e' edges, so it could cross
+ * the glue, and union(a, b) would accept "e" when a only accepts "". Instead
+ * the state where an operand begins gets a copy of every transition leaving
+ * the eclosure of its start state, and accepts if that eclosure does, so the
+ * results stay exact for inputs containing 'e'.
+ * intersection explores the product on the fly from the pair of start
+ * states, so only reachable pairs become states. complement and difference
+ * go through the subset construction. These three are exact over strings
+ * without 'e', complement leaves 'e' out of its alphabet.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class Operations {
+
+    private Operations() {
+    }
+
+    /**
+     * @return an NFA accepting the strings accepted by a or by b
+     */
+    public static NFA union(NFA a, NFA b) {
+        NFA result = new NFA();
+        NFAState start = result.newState("s");
+        result.setStart("s");
+        NFAState[] left = copy(a, result, "1:");
+        NFAState[] right = copy(b, result, "2:");
+        absorb(result, start, a, left);
+        absorb(result, start, b, right);
+        finals(a, result, "1:");
+        finals(b, result, "2:");
+        return result;
+    }
+
+    /**
+     * @return an NFA accepting every string uv with u accepted by a and v by b
+     */
+    public static NFA concat(NFA a, NFA b) {
+        NFA result = new NFA();
+        NFAState[] left = copy(a, result, "1:");
+        NFAState[] right = copy(b, result, "2:");
+        if (left[0] != null) {
+            result.setStart(left[0].getName());
+        }
+        for (NFAState f : a.finals()) {
+            absorb(result, left[f.id() + 1], b, right);
+        }
+        finals(b, result, "2:");
+        return result;
+    }
+
+    /**
+     * @return an NFA accepting every concatenation of zero or more strings accepted by a
+     */
+    public static NFA star(NFA a) {
+        NFA result = new NFA();
+        NFAState start = result.newState("s");
+        result.setStart("s");
+        result.setFinal("s");
+        NFAState[] inner = copy(a, result, "1:");
+        absorb(result, start, a, inner);
+        for (NFAState f : a.finals()) {
+            absorb(result, inner[f.id() + 1], a, inner);
+        }
+        finals(a, result, "1:");
+        return result;
+    }
+
+    /**
+     * Product construction over the pairs reachable from (q0 of a, q0 of b).
+     * A pair moves on a symbol when both sides do, and on 'e' when either
+     * side does. Pair states are named (p,q).
+     * @return an NFA accepting the strings accepted by both a and b
+     */
+    public static NFA intersection(NFA a, NFA b) {
+        NFA result = new NFA();
+        for (char c : a.getSigma()) {
+            if (b.getSigma().contains(c)) {
+                result.addSigma(c);
+            }
+        }
+        NFAState p0 = a.start();
+        NFAState q0 = b.start();
+        if (p0 == null || q0 == null) {
+            return result;
+        }
+
+        Map<Long, NFAState> pairs = new HashMap<>(); // p id << 32 | q id -> product state
+        ArrayDeque<NFAState[]> work = new ArrayDeque<>();
+        NFAState start = pair(result, pairs, work, p0, q0);
+        result.setStart(start.getName());
+        while (!work.isEmpty()) {
+            NFAState[] pq = work.poll();
+            NFAState p = pq[0];
+            NFAState q = pq[1];
+            NFAState from = pairs.get(key(p, q));
+            if (a.finals().contains(p) && b.finals().contains(q)) {
+                result.setFinal(from.getName());
+            }
+            for (NFAState t : p.toStates('e')) {
+                result.addTransition(from, 'e', pair(result, pairs, work, t, q));
+            }
+            for (NFAState t : q.toStates('e')) {
+                result.addTransition(from, 'e', pair(result, pairs, work, p, t));
+            }
+            // both symbol arrays are sorted, walk them together
+            char[] left = p.symbols();
+            char[] right = q.symbols();
+            for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+                if (left[i] < right[j]) {
+                    i++;
+                } else if (left[i] > right[j]) {
+                    j++;
+                } else {
+                    char c = left[i++];
+                    j++;
+                    if (c == 'e' || !result.getSigma().contains(c)) {
+                        continue;
+                    }
+                    for (NFAState pt : p.toStates(c)) {
+                        for (NFAState qt : q.toStates(c)) {
+                            result.addTransition(from, c, pair(result, pairs, work, pt, qt));
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return an NFA accepting the strings over the Sigma of a that a rejects
+     */
+    public static NFA complement(NFA a) {
+        return complement(a, a.getSigma());
+    }
+
+    /**
+     * Determinizes a and swaps accepting and rejecting states, with a sink
+     * state standing for the dead state. States are named D0, D1, ... in the
+     * order of the subset construction, the sink comes last. 'e' is never a
+     * symbol, so it is left out of sigma.
+     * @param a, the automaton to complement
+     * @param sigma, the alphabet to complement against
+     * @return an NFA accepting the strings over sigma that a rejects
+     */
+    public static NFA complement(NFA a, Set<Character> sigma) {
+        DFATable table = SubsetConstruction.table(a);
+        Set<Character> symbols = new LinkedHashSet<>(sigma);
+        symbols.remove('e');
+        NFA result = new NFA();
+        for (char c : symbols) {
+            result.addSigma(c);
+        }
+        int n = table.stateCount();
+        NFAState[] states = new NFAState[n + 1];
+        for (int d = 0; d <= n; d++) {
+            states[d] = result.newState("D" + d);
+            if (d == n || !table.isFinal(d)) {
+                result.setFinal("D" + d);
+            }
+        }
+        result.setStart("D" + table.start());
+        for (int d = 0; d <= n; d++) {
+            for (char c : symbols) {
+                int symbol = table.symbolOf(c);
+                int t = d == n || symbol < 0 ? DFATable.DEAD : table.next(d, symbol);
+                result.addTransition(states[d], c, states[t == DFATable.DEAD ? n : t]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return an NFA accepting the strings accepted by a but not by b
+     */
+    public static NFA difference(NFA a, NFA b) {
+        Set<Character> sigma = new LinkedHashSet<>(a.getSigma());
+        sigma.addAll(b.getSigma());
+        return intersection(a, complement(b, sigma));
+    }
+
+    /**
+     * copies the states and transitions of source into target, adding Sigma
+     * @return the start copy first, then the copy of every state by id + 1,
+     * the start copy is null if source has no start state
+     */
+    static NFAState[] copy(NFA source, NFA target, String prefix) {
+        for (char c : source.getSigma()) {
+            target.addSigma(c);
+        }
+        int n = source.states().size();
+        NFAState[] copies = new NFAState[n + 1];
+        for (int i = 0; i < n; i++) {
+            copies[i + 1] = target.newState(prefix + source.state(i).getName());
+        }
+        for (int i = 0; i < n; i++) {
+            NFAState state = source.state(i);
+            for (char c : state.symbols()) {
+                for (NFAState t : state.toStates(c)) {
+                    target.addTransition(copies[i + 1], c, copies[t.id() + 1]);
+                }
+            }
+        }
+        NFAState q0 = source.start();
+        copies[0] = q0 == null ? null : copies[q0.id() + 1];
+        return copies;
+    }
+
+    /**
+     * makes from begin a run of source: from gets a copy of every transition
+     * leaving the eclosure of the start of source, and becomes final if that
+     * eclosure holds a final state
+     * @param copies, the copies of the states of source as made by copy
+     */
+    private static void absorb(NFA target, NFAState from, NFA source, NFAState[] copies) {
+        NFAState q0 = source.start();
+        if (q0 == null) {
+            return;
+        }
+        for (NFAState p : source.eClosure(q0)) {
+            for (char c : p.symbols()) {
+                for (NFAState t : p.toStates(c)) {
+                    target.addTransition(from, c, copies[t.id() + 1]);
+                }
+            }
+            if (source.finals().contains(p)) {
+                target.setFinal(from.getName());
+            }
+        }
+    }
+
+    private static void finals(NFA source, NFA target, String prefix) {
+        for (NFAState f : source.finals()) {
+            target.setFinal(prefix + f.getName());
+        }
+    }
+
+    private static long key(NFAState p, NFAState q) {
+        return (long) p.id() << 32 | q.id();
+    }
+
+    /**
+     * @return the product state of (p, q), created and queued on first sight
+     */
+    private static NFAState pair(NFA result, Map<Long, NFAState> pairs, ArrayDeque<NFAState[]> work, NFAState p, NFAState q) {
+        long key = key(p, q);
+        NFAState state = pairs.get(key);
+        if (state == null) {
+            String name = "(" + p.getName() + "," + q.getName() + ")";
+            while ((state = result.newState(name)) == null) {
+                name += "'"; // names containing commas can collide
+            }
+            pairs.put(key, state);
+            work.add(new NFAState[] {p, q});
+        }
+        return state;
+    }
+}
@@ -0,0 +1,109 @@
+package fa.nfa;
+
+/**
+ * Outcome of Optimizer.optimize: the smaller automaton and what was taken out
+ * of the original to get it.
+ * @author Christian Galvan, Andrew Bates
+ */
+public class Optimization {
+    private final NFA nfa;
+    private final int statesBefore;
+    private final int transitionsBefore;
+    private final int epsilonRemoved;
+    private final int unreachable;
+    private final int bypassed;
+    private final int dead;
+    private final int merged;
+
+    Optimization(NFA nfa, int statesBefore, int transitionsBefore, int epsilonRemoved, int unreachable, int bypassed, int dead,
+            int merged) {
+        this.nfa = nfa;
+        this.statesBefore = statesBefore;
+        this.transitionsBefore = transitionsBefore;
+        this.epsilonRemoved = epsilonRemoved;
+        this.unreachable = unreachable;
+        this.bypassed = bypassed;
+        this.dead = dead;
+        this.merged = merged;
+    }
+
+    /**
+     * @return the optimized automaton, it has no 'e' transitions
+     */
+    public NFA nfa() {
+        return nfa;
+    }
+
+    /**
+     * @return the number of states before optimization
+     */
+    public int statesBefore() {
+        return statesBefore;
+    }
+
+    /**
+     * @return the number of states after optimization
+     */
+    public int statesAfter() {
+        return nfa.states().size();
+    }
+
+    /**
+     * @return the number of transitions, counting every target, before optimization
+     */
+    public int transitionsBefore() {
+        return transitionsBefore;
+    }
+
+    /**
+     * @return the number of transitions, counting every target, after optimization
+     */
+    public int transitionsAfter() {
+        return Optimizer.transitions(nfa);
+    }
+
+    /**
+     * @return the number of 'e' transitions folded into symbol transitions
+     */
+    public int epsilonRemoved() {
+        return epsilonRemoved;
+    }
+
+    /**
+     * @return the number of states the original automaton could not reach
+     * from the start, even following 'e' transitions
+     */
+    public int unreachable() {
+        return unreachable;
+    }
+
+    /**
+     * @return the number of reachable states that were only entered through
+     * 'e' transitions, so nothing leads to them once those are eliminated
+     */
+    public int bypassed() {
+        return bypassed;
+    }
+
+    /**
+     * @return the number of states still reachable after epsilon elimination
+     * from which no final state can be reached
+     */
+    public int dead() {
+        return dead;
+    }
+
+    /**
+     * @return the number of states merged into a bisimilar state
+     */
+    public int merged() {
+        return merged;
+    }
+
+    @Override
+    public String toString() {
+        return "removed " + epsilonRemoved + " epsilon transitions, " + unreachable + " unreachable, " + bypassed
+                + " bypassed and " + dead + " dead states, merged " + merged + " states: " + statesBefore + " -> " + statesAfter()
+                + " states, " + transitionsBefore + " -> " + transitionsAfter() + " transitions";
+    }
+}
@@ -0,0 +1,324 @@
+package fa.nfa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shrinks an NFA without changing the strings over Sigma it accepts. Three
+ * passes run in order:
+ * <ol>
+ * <li>epsilon elimination, p goes on a to everything some state of
+ * eClosure(p) goes to on a, and p is final if its closure holds a final state</li>
+ * <li>pruning, only states reachable from q0 that can still reach a final
+ * state are kept, which drops states that were only entered through 'e'
+ * transitions along with the unreachable and dead ones</li>
+ * <li>bisimulation, states with the same finality whose transitions lead to
+ * the same blocks on every symbol are merged, refining until stable</li>
+ * </ol>
+ * The result has no 'e' transitions, so an 'e' in the input no longer
+ * follows epsilon edges, it kills every copy like any char outside Sigma.
+ * Merged states keep the name of their first member.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class Optimizer {
+
+    private Optimizer() {
+    }
+
+    /**
+     * @param nfa, the automaton to shrink, it is not changed
+     * @return a new, equivalent automaton and a report of what was removed
+     */
+    public static Optimization optimize(NFA nfa) {
+        CompiledNFA c = nfa.compile();
+        int n = c.stateCount();
+        int width = c.symbolCount();
+        int e = c.symbolOf('e');
+        // a class may hold 'e' together with chars that act just like it
+        char[][] labels = new char[width][];
+        boolean[] skip = new boolean[width];
+        for (int a = 0; a < width; a++) {
+            char[] members = c.classes().members(a);
+            labels[a] = a == e ? new String(members).replace("e", "").toCharArray() : members;
+            skip[a] = labels[a].length == 0;
+        }
+
+        // 1. fold every closure into the symbol transitions and finals
+        int epsilonRemoved = 0;
+        boolean[] fin = new boolean[n];
+        int[][][] delta = new int[width][n][];
+        long[] mark = c.newSet();
+        int[] found = new int[16];
+        for (int p = 0; p < n; p++) {
+            long[] closure = c.closure(p);
+            if (e >= 0) {
+                epsilonRemoved += c.targets(e, p).length;
+            }
+            for (int q = Bits.nextSetBit(closure, 0); q >= 0; q = Bits.nextSetBit(closure, q + 1)) {
+                fin[p] |= c.isFinal(q);
+            }
+            for (int a = 0; a < width; a++) {
+                if (skip[a]) {
+                    continue;
+                }
+                int count = 0;
+                for (int q = Bits.nextSetBit(closure, 0); q >= 0; q = Bits.nextSetBit(closure, q + 1)) {
+                    for (int t : c.targets(a, q)) {
+                        if (!Bits.get(mark, t)) {
+                            Bits.set(mark, t);
+                            if (count == found.length) {
+                                found = Arrays.copyOf(found, count * 2);
+                            }
+                            found[count++] = t;
+                        }
+                    }
+                }
+                int[] targets = Arrays.copyOf(found, count);
+                Arrays.sort(targets);
+                for (int t : targets) {
+                    mark[t >>> 6] = 0L;
+                }
+                delta[a][p] = targets;
+            }
+        }
+
+        // 2. keep the states that are reachable and co-reachable
+        int start = c.start();
+        boolean[] reach = new boolean[n];
+        int reachable = 0;
+        int[] queue = new int[n];
+        if (start >= 0) {
+            reach[start] = true;
+            queue[reachable++] = start;
+            for (int head = 0; head < reachable; head++) {
+                int p = queue[head];
+                for (int a = 0; a < width; a++) {
+                    if (skip[a]) {
+                        continue;
+                    }
+                    for (int t : delta[a][p]) {
+                        if (!reach[t]) {
+                            reach[t] = true;
+                            queue[reachable++] = t;
+                        }
+                    }
+                }
+            }
+        }
+        boolean[] useful = coreachable(delta, skip, fin, reach);
+        int kept = 0;
+        for (int p = 0; p < n; p++) {
+            if (useful[p]) {
+                kept++;
+            }
+        }
+        if (start >= 0 && !useful[start]) {
+            useful[start] = true; // the language is empty, but q0 stays
+            kept++;
+        }
+        int unreachable = n - original(c);
+        int bypassed = n - unreachable - reachable;
+        int dead = reachable - kept;
+
+        // 3. merge bisimilar states
+        int[] block = new int[n];
+        Arrays.fill(block, -1);
+        int blocks = 0;
+        for (int p = 0; p < n; p++) {
+            if (useful[p]) {
+                block[p] = fin[p] ? 1 : 0;
+            }
+        }
+        while (true) {
+            Map<StateSet, Integer> ids = new HashMap<>();
+            int[] next = new int[n];
+            Arrays.fill(next, -1);
+            for (int p = 0; p < n; p++) {
+                if (!useful[p]) {
+                    continue;
+                }
+                StateSet signature = new StateSet(signature(delta, skip, block, p));
+                Integer id = ids.get(signature);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(signature, id);
+                }
+                next[p] = id;
+            }
+            block = next;
+            if (ids.size() == blocks) {
+                break; // refining only splits blocks, the same count means stable
+            }
+            blocks = ids.size();
+        }
+
+        NFA result = new NFA();
+        for (char symbol : nfa.getSigma()) {
+            result.addSigma(symbol);
+        }
+        NFAState[] states = new NFAState[blocks];
+        int[] member = new int[blocks];
+        for (int p = n - 1; p >= 0; p--) {
+            if (block[p] >= 0) {
+                member[block[p]] = p; // the first member names the block
+            }
+        }
+        for (int b = 0; b < blocks; b++) {
+            states[b] = result.newState(c.state(member[b]).getName());
+        }
+        for (int b = 0; b < blocks; b++) {
+            int p = member[b];
+            for (int a = 0; a < width; a++) {
+                if (skip[a]) {
+                    continue;
+                }
+                for (int t : delta[a][p]) {
+                    if (block[t] >= 0) {
+                        for (char label : labels[a]) {
+                            result.addTransition(states[b], label, states[block[t]]);
+                        }
+                    }
+                }
+            }
+        }
+        if (start >= 0) {
+            result.setStart(states[block[start]].getName());
+        }
+        for (int b = 0; b < blocks; b++) {
+            if (fin[member[b]]) {
+                result.setFinal(states[b].getName());
+            }
+        }
+        return new Optimization(result, n, transitions(nfa), epsilonRemoved, unreachable, bypassed, dead, kept - blocks);
+    }
+
+    /**
+     * @return the number of states reachable from q0 in c, following 'e' edges too
+     */
+    private static int original(CompiledNFA c) {
+        int start = c.start();
+        if (start < 0) {
+            return 0;
+        }
+        boolean[] seen = new boolean[c.stateCount()];
+        int[] queue = new int[c.stateCount()];
+        int size = 0;
+        seen[start] = true;
+        queue[size++] = start;
+        for (int head = 0; head < size; head++) {
+            for (int a = 0; a < c.symbolCount(); a++) {
+                for (int t : c.targets(a, queue[head])) {
+                    if (!seen[t]) {
+                        seen[t] = true;
+                        queue[size++] = t;
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the states that can reach a final state, restricted to reach
+     */
+    private static boolean[] coreachable(int[][][] delta, boolean[] skip, boolean[] fin, boolean[] reach) {
+        int n = fin.length;
+        // reverse edges in CSR form
+        int[] in = new int[n + 1];
+        for (int a = 0; a < delta.length; a++) {
+            if (skip[a]) {
+                continue;
+            }
+            for (int p = 0; p < n; p++) {
+                for (int t : delta[a][p]) {
+                    in[t + 1]++;
+                }
+            }
+        }
+        for (int t = 0; t < n; t++) {
+            in[t + 1] += in[t];
+        }
+        int[] from = new int[in[n]];
+        int[] fill = Arrays.copyOf(in, n);
+        for (int a = 0; a < delta.length; a++) {
+            if (skip[a]) {
+                continue;
+            }
+            for (int p = 0; p < n; p++) {
+                for (int t : delta[a][p]) {
+                    from[fill[t]++] = p;
+                }
+            }
+        }
+
+        boolean[] co = new boolean[n];
+        int[] queue = new int[n];
+        int size = 0;
+        for (int p = 0; p < n; p++) {
+            if (fin[p] && reach[p]) {
+                co[p] = true;
+                queue[size++] = p;
+            }
+        }
+        for (int head = 0; head < size; head++) {
+            int t = queue[head];
+            for (int i = in[t]; i < in[t + 1]; i++) {
+                int p = from[i];
+                if (!co[p] && reach[p]) {
+                    co[p] = true;
+                    queue[size++] = p;
+                }
+            }
+        }
+        return co;
+    }
+
+    /**
+     * @return the block of p followed by every (symbol, block of target)
+     * pair of p, sorted and without repeats
+     */
+    private static long[] signature(int[][][] delta, boolean[] skip, int[] block, int p) {
+        int count = 0;
+        for (int a = 0; a < delta.length; a++) {
+            if (!skip[a]) {
+                count += delta[a][p].length;
+            }
+        }
+        long[] pairs = new long[count];
+        count = 0;
+        for (int a = 0; a < delta.length; a++) {
+            if (skip[a]) {
+                continue;
+            }
+            for (int t : delta[a][p]) {
+                if (block[t] >= 0) {
+                    pairs[count++] = (long) a << 32 | block[t];
+                }
+            }
+        }
+        Arrays.sort(pairs, 0, count);
+        long[] signature = new long[count + 1];
+        signature[0] = block[p];
+        int size = 1;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || pairs[i] != pairs[i - 1]) {
+                signature[size++] = pairs[i];
+            }
+        }
+        return Arrays.copyOf(signature, size);
+    }
+
+    /**
+     * @return the number of transitions of nfa, counting every target
+     */
+    static int transitions(NFA nfa) {
+        int count = 0;
+        for (NFAState state : nfa.states()) {
+            for (char c : state.symbols()) {
+                count += state.toStates(c).size();
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,293 @@
+package fa.nfa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds an NFA from a regular expression by Thompson construction.
+ *
+ * Supported syntax: union a|b, concatenation, a*, a+, a?, grouping (a),
+ * classes [abc] and ranges [a-z], and \ to escape any metacharacter (\n, \t
+ * and \r stand for the control characters). An empty pattern or alternative
+ * matches the empty string. Every character of the pattern is added to Sigma.
+ *
+ * The NFA uses 'e' as its epsilon label, so a literal 'e' cannot be matched
+ * and is rejected. States are named q0, q1, ... in creation order and are
+ * wired directly, without name lookups. Each piece of the pattern is built
+ * starting from the state the previous piece ended in, so concatenation costs
+ * no epsilon edge, and an n-way union fans out from one state, which keeps a
+ * union of many keywords linear in the length of the pattern.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class Regex {
+    private static final int CHARS = 0; // one of chars
+    private static final int CONCAT = 1;
+    private static final int UNION = 2;
+    private static final int STAR = 3;
+    private static final int PLUS = 4;
+    private static final int OPTIONAL = 5;
+
+    /**
+     * a node of the parsed pattern
+     */
+    private static final class Node {
+        final int kind;
+        final char[] chars;
+        final List<Node> parts;
+
+        Node(int kind, char[] chars, List<Node> parts) {
+            this.kind = kind;
+            this.chars = chars;
+            this.parts = parts;
+        }
+    }
+
+    private final String pattern;
+    private int pos;
+    private NFA nfa;
+    private int names;
+
+    private Regex(String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * @param pattern, the regular expression
+     * @return an NFA accepting exactly the strings the pattern matches
+     * @throws IllegalArgumentException if the pattern is malformed
+     */
+    public static NFA compile(String pattern) {
+        return compile(pattern, false);
+    }
+
+    /**
+     * @param pattern, the regular expression
+     * @param precompute, true to compile the NFA and compute every eclosure
+     * now instead of on the first query
+     * @return an NFA accepting exactly the strings the pattern matches
+     * @throws IllegalArgumentException if the pattern is malformed
+     */
+    public static NFA compile(String pattern, boolean precompute) {
+        Regex regex = new Regex(pattern);
+        Node root = regex.parseUnion();
+        if (regex.pos < pattern.length()) {
+            throw regex.error("unexpected '" + pattern.charAt(regex.pos) + "'");
+        }
+
+        NFA nfa = new NFA();
+        regex.nfa = nfa;
+        NFAState start = regex.newState();
+        NFAState end = regex.build(root, start);
+        nfa.setStart(start.getName());
+        nfa.setFinal(end.getName());
+        if (precompute) {
+            nfa.compile();
+        }
+        return nfa;
+    }
+
+    // parsing
+
+    private Node parseUnion() {
+        Node first = parseConcat();
+        if (!peek('|')) {
+            return first;
+        }
+        List<Node> alternatives = new ArrayList<>();
+        alternatives.add(first);
+        while (peek('|')) {
+            pos++;
+            alternatives.add(parseConcat());
+        }
+        return new Node(UNION, null, alternatives);
+    }
+
+    private Node parseConcat() {
+        List<Node> parts = new ArrayList<>();
+        while (pos < pattern.length() && !peek('|') && !peek(')')) {
+            parts.add(parseRepeat());
+        }
+        return parts.size() == 1 ? parts.get(0) : new Node(CONCAT, null, parts);
+    }
+
+    private Node parseRepeat() {
+        Node node = parseAtom();
+        while (pos < pattern.length()) {
+            char c = pattern.charAt(pos);
+            int kind = c == '*' ? STAR : c == '+' ? PLUS : c == '?' ? OPTIONAL : -1;
+            if (kind < 0) {
+                break;
+            }
+            pos++;
+            List<Node> inner = new ArrayList<>(1);
+            inner.add(node);
+            node = new Node(kind, null, inner);
+        }
+        return node;
+    }
+
+    private Node parseAtom() {
+        char c = pattern.charAt(pos);
+        switch (c) {
+        case '(':
+            int open = pos++;
+            Node inner = parseUnion();
+            if (!peek(')')) {
+                pos = open;
+                throw error("unclosed group");
+            }
+            pos++;
+            return inner;
+        case '[':
+            return parseClass();
+        case '*':
+        case '+':
+        case '?':
+            throw error("nothing to repeat");
+        case ']':
+            throw error("unexpected ']'");
+        default:
+            pos++;
+            return new Node(CHARS, new char[] {literal(c == '\\' ? escaped() : c)}, null);
+        }
+    }
+
+    private Node parseClass() {
+        int open = pos++;
+        if (peek('^')) {
+            throw error("negated classes are not supported, the alphabet is not known");
+        }
+        StringBuilder chars = new StringBuilder();
+        while (!peek(']')) {
+            if (pos >= pattern.length()) {
+                pos = open;
+                throw error("unclosed class");
+            }
+            char low = classChar();
+            if (peek('-') && pos + 1 < pattern.length() && pattern.charAt(pos + 1) != ']') {
+                pos++;
+                char high = classChar();
+                if (high < low) {
+                    throw error("bad range " + low + "-" + high);
+                }
+                for (char c = low; c < high; c++) {
+                    chars.append(c);
+                }
+                chars.append(high);
+            } else {
+                chars.append(low);
+            }
+        }
+        pos++;
+        if (chars.length() == 0) {
+            throw error("empty class");
+        }
+        char[] set = chars.toString().toCharArray();
+        Arrays.sort(set);
+        int distinct = 0;
+        for (int i = 0; i < set.length; i++) {
+            if (i == 0 || set[i] != set[i - 1]) {
+                set[distinct++] = literal(set[i]);
+            }
+        }
+        return new Node(CHARS, Arrays.copyOf(set, distinct), null);
+    }
+
+    private char classChar() {
+        char c = pattern.charAt(pos++);
+        return c == '\\' ? escaped() : c;
+    }
+
+    /**
+     * reads the character after a backslash that was just consumed
+     */
+    private char escaped() {
+        if (pos >= pattern.length()) {
+            throw error("dangling \\");
+        }
+        char c = pattern.charAt(pos++);
+        return c == 'n' ? '\n' : c == 't' ? '\t' : c == 'r' ? '\r' : c;
+    }
+
+    private char literal(char c) {
+        if (c == 'e') {
+            throw error("'e' is the epsilon label of the NFA and cannot be matched");
+        }
+        return c;
+    }
+
+    private boolean peek(char c) {
+        return pos < pattern.length() && pattern.charAt(pos) == c;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + pos + " in " + pattern);
+    }
+
+    // construction
+
+    private NFAState newState() {
+        return nfa.newState("q" + names++);
+    }
+
+    /**
+     * Adds the states and edges of node so that its strings lead from from to
+     * the returned state. The returned state may already have outgoing edges
+     * of its own, as the loop head of a star does, but never gets an edge
+     * back into a state built before it.
+     */
+    private NFAState build(Node node, NFAState from) {
+        switch (node.kind) {
+        case CHARS: {
+            NFAState to = newState();
+            for (char c : node.chars) {
+                nfa.addSigma(c);
+                nfa.addTransition(from, c, to);
+            }
+            return to;
+        }
+        case CONCAT: {
+            NFAState at = from;
+            for (Node part : node.parts) {
+                at = build(part, at);
+            }
+            return at;
+        }
+        case UNION: {
+            List<NFAState> ends = new ArrayList<>(node.parts.size());
+            for (Node part : node.parts) {
+                ends.add(build(part, from));
+            }
+            NFAState join = newState();
+            for (NFAState end : ends) {
+                nfa.addTransition(end, 'e', join);
+            }
+            return join;
+        }
+        case STAR: {
+            NFAState loop = newState();
+            nfa.addTransition(from, 'e', loop);
+            NFAState end = build(node.parts.get(0), loop);
+            nfa.addTransition(end, 'e', loop);
+            return loop;
+        }
+        case PLUS: {
+            NFAState loop = newState();
+            nfa.addTransition(from, 'e', loop);
+            NFAState end = build(node.parts.get(0), loop);
+            NFAState out = newState();
+            nfa.addTransition(end, 'e', loop);
+            nfa.addTransition(end, 'e', out);
+            return out;
+        }
+        default: { // OPTIONAL
+            NFAState end = build(node.parts.get(0), from);
+            NFAState out = newState();
+            nfa.addTransition(end, 'e', out);
+            nfa.addTransition(from, 'e', out);
+            return out;
+        }
+        }
+    }
+}
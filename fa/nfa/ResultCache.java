@@ -0,0 +1,177 @@
+package fa.nfa;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of the answers of NFA.accepts and NFA.maxCopies, keyed
+ * by the input, turned on with NFA.setResultCache. The two answers of an
+ * input are cached independently, each one on its first request.
+ *
+ * Every change to the automaton empties the cache, and an answer computed
+ * on the automaton as it was before a change is never stored after it.
+ * Lookups are synchronized, the matches themselves run outside the lock.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class ResultCache {
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries;
+    private CompiledNFA owner; // the form the entries were computed on, null after a change
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * the known answers for one input
+     */
+    private static final class Entry {
+        byte accepted = -1; // 0 or 1, -1 when not known yet
+        int maxCopies = -1; // -1 when not known yet
+    }
+
+    /**
+     * @param capacity, the most inputs to remember
+     */
+    ResultCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ResultCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    boolean accepts(AdaptiveMatcher matcher, String s) {
+        CompiledNFA c = matcher.compiled();
+        synchronized (this) {
+            Entry e = find(c, s);
+            if (e != null && e.accepted >= 0) {
+                hits++;
+                return e.accepted == 1;
+            }
+            misses++;
+        }
+        boolean accepted = matcher.accepts(s);
+        synchronized (this) {
+            Entry e = store(c, s);
+            if (e != null) {
+                e.accepted = (byte) (accepted ? 1 : 0);
+            }
+        }
+        return accepted;
+    }
+
+    int maxCopies(AdaptiveMatcher matcher, String s) {
+        CompiledNFA c = matcher.compiled();
+        synchronized (this) {
+            Entry e = find(c, s);
+            if (e != null && e.maxCopies >= 0) {
+                hits++;
+                return e.maxCopies;
+            }
+            misses++;
+        }
+        int max = matcher.maxCopies(s);
+        synchronized (this) {
+            Entry e = store(c, s);
+            if (e != null) {
+                e.maxCopies = max;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return the entry of s, or null if there is none, entries of an older
+     * form are dropped first
+     */
+    private Entry find(CompiledNFA c, String s) {
+        if (owner != c) {
+            entries.clear();
+            owner = c;
+        }
+        return entries.get(s);
+    }
+
+    /**
+     * @return the entry of s, made if needed, or null if c is no longer the current form
+     */
+    private Entry store(CompiledNFA c, String s) {
+        if (owner != c) {
+            return null;
+        }
+        Entry e = entries.get(s);
+        if (e == null) {
+            e = new Entry();
+            entries.put(s, e);
+        }
+        return e;
+    }
+
+    /**
+     * drops every entry, called on every change to the automaton
+     */
+    synchronized void invalidate() {
+        entries.clear();
+        owner = null;
+    }
+
+    /**
+     * @return the most inputs the cache remembers
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of inputs currently remembered
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return how many answers were served from the cache
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * @return how many answers had to be computed
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return how many inputs were dropped to stay within the capacity
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the share of answers served from the cache, 0 before the first
+     */
+    public synchronized double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return size() + "/" + capacity + " entries, " + hits + " hits, " + misses + " misses, "
+                + evictions + " evictions";
+    }
+}
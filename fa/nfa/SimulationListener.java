@@ -0,0 +1,16 @@
+package fa.nfa;
+
+/**
+ * Receives the counters of every instrumented simulation. Install one with
+ * NFA.setListener, without a listener the simulation runs uninstrumented and
+ * pays nothing for this.
+ * @author Christian Galvan, Andrew Bates
+ */
+public interface SimulationListener {
+
+	/**
+	 * Called on the simulating thread once a match has finished
+	 * @param stats - the counters of that match
+	 */
+	public void matchCompleted(MatchStats stats);
+}
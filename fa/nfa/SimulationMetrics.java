@@ -0,0 +1,130 @@
+package fa.nfa;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A SimulationListener that sums up the counters of every match and exposes
+ * the totals as a JMX MBean. It can be shared by automata and threads, the
+ * counters are striped adders so concurrent matches do not contend.
+ * @author Christian Galvan, Andrew Bates
+ */
+public class SimulationMetrics implements SimulationListener, SimulationMetricsMBean {
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder characters = new LongAdder();
+    private final LongAccumulator peakActive = new LongAccumulator(Math::max, 0);
+    private final LongAdder totalActive = new LongAdder();
+    private final LongAdder closureExpansions = new LongAdder();
+    private final LongAdder transitions = new LongAdder();
+    private final LongAdder deadExits = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    @Override
+    public void matchCompleted(MatchStats stats) {
+        matches.increment();
+        if (stats.accepted()) {
+            accepted.increment();
+        }
+        characters.add(stats.characters());
+        peakActive.accumulate(stats.peakActive());
+        totalActive.add(stats.totalActive());
+        closureExpansions.add(stats.closureExpansions());
+        transitions.add(stats.transitions());
+        if (stats.diedEarly()) {
+            deadExits.increment();
+        }
+        nanos.add(stats.nanos());
+    }
+
+    /**
+     * Registers this object with the platform MBean server as
+     * fa.nfa:type=SimulationMetrics,name=name
+     * @param name, distinguishes automata that are monitored separately
+     * @return the name it was registered under
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = ObjectName.getInstance("fa.nfa:type=SimulationMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Removes a registration made by register
+     * @param name, the name returned by register
+     */
+    public static void unregister(ObjectName name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Override
+    public long getMatches() {
+        return matches.sum();
+    }
+
+    @Override
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    @Override
+    public long getCharactersProcessed() {
+        return characters.sum();
+    }
+
+    @Override
+    public int getPeakActiveStates() {
+        return (int) peakActive.get();
+    }
+
+    /**
+     * averaged over every step of every match, the start set counting as one step
+     */
+    @Override
+    public double getAverageActiveStates() {
+        long steps = characters.sum() + matches.sum();
+        return steps == 0 ? 0 : (double) totalActive.sum() / steps;
+    }
+
+    @Override
+    public long getClosureExpansions() {
+        return closureExpansions.sum();
+    }
+
+    @Override
+    public long getTransitionsFollowed() {
+        return transitions.sum();
+    }
+
+    @Override
+    public long getDeadStateExits() {
+        return deadExits.sum();
+    }
+
+    @Override
+    public double getAverageNanosPerMatch() {
+        long count = matches.sum();
+        return count == 0 ? 0 : (double) nanos.sum() / count;
+    }
+
+    @Override
+    public void reset() {
+        matches.reset();
+        accepted.reset();
+        characters.reset();
+        peakActive.reset();
+        totalActive.reset();
+        closureExpansions.reset();
+        transitions.reset();
+        deadExits.reset();
+        nanos.reset();
+    }
+}
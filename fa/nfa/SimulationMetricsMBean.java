@@ -0,0 +1,31 @@
+package fa.nfa;
+
+/**
+ * JMX view of SimulationMetrics.
+ * @author Christian Galvan, Andrew Bates
+ */
+public interface SimulationMetricsMBean {
+
+	public long getMatches();
+
+	public long getAccepted();
+
+	public long getCharactersProcessed();
+
+	public int getPeakActiveStates();
+
+	public double getAverageActiveStates();
+
+	public long getClosureExpansions();
+
+	public long getTransitionsFollowed();
+
+	public long getDeadStateExits();
+
+	public double getAverageNanosPerMatch();
+
+	/**
+	 * sets every counter back to zero
+	 */
+	public void reset();
+}
@@ -0,0 +1,42 @@
+package fa.nfa;
+
+/**
+ * Briggs-Torczon sparse set of state ids. x is a member when
+ * sparse[x] < size and dense[sparse[x]] == x, so stale entries left in the
+ * arrays never matter: clear is O(1) and iteration only touches the members.
+ * @author Christian Galvan, Andrew Bates
+ */
+final class SparseSet {
+    final int[] dense; // the members, in insertion order, dense[0 .. size)
+    private final int[] sparse; // state id -> index into dense, garbage for non members
+    int size;
+
+    /**
+     * @param capacity, one more than the largest id the set will hold
+     */
+    SparseSet(int capacity) {
+        dense = new int[capacity];
+        sparse = new int[capacity];
+    }
+
+    boolean contains(int x) {
+        int i = sparse[x];
+        return i < size && dense[i] == x;
+    }
+
+    /**
+     * @return true if x was not a member yet
+     */
+    boolean add(int x) {
+        if (contains(x)) {
+            return false;
+        }
+        sparse[x] = size;
+        dense[size++] = x;
+        return true;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
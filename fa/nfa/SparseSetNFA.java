@@ -0,0 +1,131 @@
+package fa.nfa;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Simulation on sparse sets for large automata of which only a few states
+ * are active at a time. The bitset simulation clears, scans and counts
+ * whole bitsets every step, which costs O(|Q| / 64) however few states are
+ * active. Here the active set and the set being built are Briggs-Torczon
+ * sparse sets, clearing is free and a step only visits the active states,
+ * their targets and the eclosures it adds. A target already in the next set
+ * brought its whole closure with it, so it is skipped, as in CompiledNFA.
+ *
+ * The two sets are reused from match to match. A match takes them out and
+ * puts them back, one running while they are taken allocates its own, so
+ * the object can be shared between threads.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class SparseSetNFA {
+    private final CompiledNFA nfa;
+    private final int[][] closures; // the members of every eclosure
+    private final AtomicReference<SparseSet[]> idle = new AtomicReference<>(); // current and next, null while in use
+
+    SparseSetNFA(CompiledNFA nfa) {
+        this.nfa = nfa;
+        int n = nfa.stateCount();
+        closures = new int[n][];
+        for (int s = 0; s < n; s++) {
+            long[] closure = nfa.closure(s);
+            int[] members = new int[Bits.cardinality(closure)];
+            int i = 0;
+            for (int t = Bits.nextSetBit(closure, 0); t >= 0; t = Bits.nextSetBit(closure, t + 1)) {
+                members[i++] = t;
+            }
+            closures[s] = members;
+        }
+    }
+
+    /**
+     * @param nfa, the automaton, later changes to it are not seen
+     * @return the sparse set simulation of nfa
+     */
+    public static SparseSetNFA of(NFA nfa) {
+        return new SparseSetNFA(nfa.compile());
+    }
+
+    /**
+     * @param s, the input
+     * @return true if s is accepted, the same answer as NFA.accepts
+     */
+    public boolean accepts(CharSequence s) {
+        SparseSet[] sets = take();
+        try {
+            SparseSet current = run(s, sets, null);
+            for (int i = 0; i < current.size; i++) {
+                if (nfa.isFinal(current.dense[i])) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            idle.set(sets);
+        }
+    }
+
+    /**
+     * @param s, the input
+     * @return the largest number of active states while processing s
+     */
+    public int maxCopies(CharSequence s) {
+        SparseSet[] sets = take();
+        try {
+            int[] max = new int[1];
+            run(s, sets, max);
+            return max[0];
+        } finally {
+            idle.set(sets);
+        }
+    }
+
+    /**
+     * @return the idle pair of sets, or a new pair if another match holds it
+     */
+    private SparseSet[] take() {
+        SparseSet[] sets = idle.getAndSet(null);
+        if (sets == null) {
+            int n = nfa.stateCount();
+            sets = new SparseSet[] {new SparseSet(n), new SparseSet(n)};
+        }
+        return sets;
+    }
+
+    /**
+     * runs the simulation on s, max[0] gets the peak if max is not null
+     * @return the active set after the last character
+     */
+    private SparseSet run(CharSequence s, SparseSet[] sets, int[] max) {
+        SparseSet current = sets[0];
+        SparseSet next = sets[1];
+        current.clear();
+        if (nfa.start() >= 0) {
+            for (int t : closures[nfa.start()]) {
+                current.add(t);
+            }
+        }
+        int peak = current.size;
+        for (int i = 0, n = s.length(); i < n && current.size > 0; i++) {
+            next.clear();
+            int a = nfa.symbolOf(s.charAt(i));
+            if (a >= 0) {
+                for (int k = 0; k < current.size; k++) {
+                    for (int t : nfa.targets(a, current.dense[k])) {
+                        if (!next.contains(t)) {
+                            for (int u : closures[t]) {
+                                next.add(u);
+                            }
+                        }
+                    }
+                }
+            }
+            SparseSet tmp = current;
+            current = next;
+            next = tmp;
+            peak = Math.max(peak, current.size);
+        }
+        if (max != null) {
+            max[0] = peak;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,57 @@
+package fa.nfa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index over the states of one NFA, by name and by id. Ids are handed out
+ * in creation order, which is also the iteration order of the NFA's Q.
+ * @author Christian Galvan, Andrew Bates
+ */
+class StateRegistry {
+    private final Map<String, NFAState> byName = new HashMap<>();
+    private final List<NFAState> byId = new ArrayList<>();
+
+    /**
+     * creates a state with the next free id
+     * @param name, the label of the new state
+     * @return the new state, or null if the name is taken
+     */
+    NFAState create(String name) {
+        if (byName.containsKey(name)) {
+            return null;
+        }
+        NFAState state = new NFAState(name, byId.size());
+        byName.put(name, state);
+        byId.add(state);
+        return state;
+    }
+
+    /**
+     * @return the state with the given name, or null
+     */
+    NFAState get(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * @return the state with the given id
+     */
+    NFAState get(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * @return true if s was created by this registry
+     */
+    boolean owns(NFAState s) {
+        int id = s.id();
+        return id >= 0 && id < byId.size() && byId.get(id) == s;
+    }
+
+    int size() {
+        return byId.size();
+    }
+}
@@ -0,0 +1,28 @@
+package fa.nfa;
+
+import java.util.Arrays;
+
+/**
+ * A set of NFA state ids usable as a hash key. The bitset is owned by the
+ * key and must not change once the key is built.
+ * @author Christian Galvan, Andrew Bates
+ */
+final class StateSet {
+    final long[] bits;
+    private final int hash;
+
+    StateSet(long[] bits) {
+        this.bits = bits;
+        this.hash = Arrays.hashCode(bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof StateSet && Arrays.equals(bits, ((StateSet) o).bits);
+    }
+}
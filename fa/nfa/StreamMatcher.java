@@ -0,0 +1,159 @@
+package fa.nfa;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Runs an automaton over input that is read incrementally instead of being
+ * held in one String. Memory use is a fixed size buffer plus one MatcherSession,
+ * whatever the input length, and reading stops as soon as every copy of the
+ * automaton has died.
+ *
+ * The answers are the same as NFA.accepts on the whole input. Bytes are
+ * decoded like new String(bytes, charset) does, malformed input is replaced.
+ *
+ * The matcher compiles the NFA once and is stateless between calls, so one
+ * instance can be used by several threads.
+ * @author Christian Galvan, Andrew Bates
+ */
+public class StreamMatcher {
+    private static final int BUFFER = 8192; // chars or bytes read at a time
+    private static final long WINDOW = 64L << 20; // bytes of a file mapped at a time
+
+    private final CompiledNFA nfa;
+
+    /**
+     * @param nfa, the automaton to run, later changes to it are not seen
+     */
+    public StreamMatcher(NFA nfa) {
+        this.nfa = nfa.compile();
+    }
+
+    /**
+     * @param s, the input, read in place without copying
+     * @return true if s is accepted
+     */
+    public boolean accepts(CharSequence s) {
+        return nfa.accepts(s);
+    }
+
+    /**
+     * Reads in until it ends or the automaton dies, in is not closed
+     * @param in, the input
+     * @return true if the characters read are accepted
+     */
+    public boolean accepts(Reader in) throws IOException {
+        MatcherSession session = nfa.newSession();
+        char[] buf = new char[BUFFER];
+        int n;
+        while ((n = in.read(buf)) >= 0) {
+            if (!session.feed(buf, 0, n)) {
+                return false;
+            }
+        }
+        return session.isAccepting();
+    }
+
+    /**
+     * Decodes and reads ch until it ends or the automaton dies, ch is not closed
+     * @param ch, the input bytes
+     * @param charset, the encoding of the bytes
+     * @return true if the decoded characters are accepted
+     */
+    public boolean accepts(ReadableByteChannel ch, Charset charset) throws IOException {
+        MatcherSession session = nfa.newSession();
+        CharsetDecoder decoder = decoder(charset);
+        ByteBuffer bytes = ByteBuffer.allocate(BUFFER);
+        CharBuffer chars = CharBuffer.allocate(BUFFER);
+        boolean end = false;
+        while (!end) {
+            end = ch.read(bytes) < 0;
+            bytes.flip();
+            if (!decode(decoder, bytes, chars, end, session)) {
+                return false;
+            }
+            bytes.compact();
+        }
+        return finish(decoder, chars, session);
+    }
+
+    /**
+     * Maps file into memory window by window and runs over its decoded
+     * contents, nothing is copied onto the heap but the decoded chunk
+     * @param file, the input
+     * @param charset, the encoding of the file
+     * @return true if the decoded contents are accepted
+     */
+    public boolean accepts(Path file, Charset charset) throws IOException {
+        MatcherSession session = nfa.newSession();
+        CharsetDecoder decoder = decoder(charset);
+        CharBuffer chars = CharBuffer.allocate(BUFFER);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long position = 0;
+            do {
+                long length = Math.min(WINDOW, size - position);
+                MappedByteBuffer window = ch.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean end = position + length == size;
+                if (!decode(decoder, window, chars, end, session)) {
+                    return false;
+                }
+                // a character split across windows is decoded again from the next one
+                position += window.position();
+            } while (position < size);
+        }
+        return finish(decoder, chars, session);
+    }
+
+    private static CharsetDecoder decoder(Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * decodes as much of bytes as possible, feeding every full buffer to session
+     * @return false if the automaton died
+     */
+    private static boolean decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars, boolean end, MatcherSession session) {
+        while (true) {
+            CoderResult result = decoder.decode(bytes, chars, end);
+            if (!drain(chars, session)) {
+                return false;
+            }
+            if (!result.isOverflow()) {
+                return true; // underflow, needs more bytes
+            }
+        }
+    }
+
+    /**
+     * flushes the decoder and answers for the whole input
+     */
+    private static boolean finish(CharsetDecoder decoder, CharBuffer chars, MatcherSession session) {
+        while (decoder.flush(chars).isOverflow()) {
+            if (!drain(chars, session)) {
+                return false;
+            }
+        }
+        return drain(chars, session) && session.isAccepting();
+    }
+
+    private static boolean drain(CharBuffer chars, MatcherSession session) {
+        chars.flip();
+        boolean alive = session.feed(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        chars.clear();
+        return alive;
+    }
+}
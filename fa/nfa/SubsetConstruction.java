@@ -0,0 +1,143 @@
+package fa.nfa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fa.dfa.DFA;
+import fa.dfa.DFATable;
+import fa.dfa.Hopcroft;
+import fa.dfa.Minimization;
+
+/**
+ * Eager subset construction. Every reachable set of NFA states becomes one
+ * DFA state, the empty set is left as the implicit dead state.
+ *
+ * The table form runs over the same input alphabet as CompiledNFA so it
+ * answers accepts exactly like NFA.accepts. The named DFA is restricted to
+ * Sigma.
+ * @author Christian Galvan, Andrew Bates
+ */
+public final class SubsetConstruction {
+
+    private SubsetConstruction() {
+    }
+
+    /**
+     * @param nfa, the automaton to determinize
+     * @return the determinized transition table
+     */
+    public static DFATable table(NFA nfa) {
+        return table(nfa, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param nfa, the automaton to determinize
+     * @param maxStates, the most DFA states to build before giving up
+     * @return the determinized transition table
+     * @throws IllegalStateException if more than maxStates states are reachable
+     */
+    public static DFATable table(NFA nfa, int maxStates) {
+        return table(nfa.compile(), maxStates);
+    }
+
+    /**
+     * @param nfa, the compiled automaton to determinize
+     * @param maxStates, the most DFA states to build before giving up
+     * @return the determinized transition table
+     * @throws IllegalStateException if more than maxStates states are reachable
+     */
+    static DFATable table(CompiledNFA nfa, int maxStates) {
+        return build(nfa, maxStates, null);
+    }
+
+    /**
+     * Determinizes nfa and minimizes the result with Hopcroft's algorithm
+     * @param nfa, the automaton to compile
+     * @return the minimal table together with the state counts before and after
+     */
+    public static Minimization minimize(NFA nfa) {
+        return Hopcroft.minimize(table(nfa));
+    }
+
+    /**
+     * Determinizes nfa into a DFA over its Sigma. States are named after the
+     * set of NFA states they stand for, e.g. [q0, q1].
+     * @param nfa, the automaton to determinize
+     * @return the equivalent DFA
+     */
+    public static DFA toDFA(NFA nfa) {
+        CompiledNFA compiled = nfa.compile();
+        List<long[]> sets = new ArrayList<>();
+        DFATable table = build(compiled, Integer.MAX_VALUE, sets);
+        String[] names = new String[sets.size()];
+        for (int d = 0; d < names.length; d++) {
+            long[] set = sets.get(d);
+            StringBuilder sb = new StringBuilder("[");
+            for (int s = Bits.nextSetBit(set, 0); s >= 0; s = Bits.nextSetBit(set, s + 1)) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(compiled.state(s).getName());
+            }
+            names[d] = sb.append("]").toString();
+        }
+        return table.toDFA(nfa.getSigma(), names);
+    }
+
+    /**
+     * breadth first over the reachable subsets
+     * @param sets, if not null receives the subset of every DFA state
+     */
+    private static DFATable build(CompiledNFA nfa, int maxStates, List<long[]> sets) {
+        int width = nfa.symbolCount();
+        Map<StateSet, Integer> ids = new HashMap<>();
+        List<long[]> queue = new ArrayList<>();
+        int[] delta = new int[16 * Math.max(width, 1)];
+
+        long[] first = nfa.newSet();
+        nfa.startSet(first);
+        ids.put(new StateSet(first), 0);
+        queue.add(first);
+
+        long[] next = nfa.newSet();
+        for (int d = 0; d < queue.size(); d++) {
+            long[] current = queue.get(d);
+            for (int a = 0; a < width; a++) {
+                nfa.step(current, next, nfa.symbol(a));
+                int target = DFATable.DEAD;
+                if (!Bits.isEmpty(next)) {
+                    StateSet key = new StateSet(next);
+                    Integer known = ids.get(key);
+                    if (known == null) {
+                        if (queue.size() == maxStates) {
+                            throw new IllegalStateException("more than " + maxStates + " DFA states");
+                        }
+                        known = queue.size();
+                        ids.put(key, known);
+                        queue.add(next);
+                        next = nfa.newSet(); // next now belongs to the key
+                    }
+                    target = known;
+                }
+                int slot = d * width + a;
+                if (slot >= delta.length) {
+                    delta = Arrays.copyOf(delta, delta.length * 2);
+                }
+                delta[slot] = target;
+            }
+        }
+
+        int n = queue.size();
+        boolean[] finals = new boolean[n];
+        for (int d = 0; d < n; d++) {
+            finals[d] = nfa.isAccepting(queue.get(d));
+        }
+        if (sets != null) {
+            sets.addAll(queue);
+        }
+        return new DFATable(nfa.classes(), Arrays.copyOf(delta, n * width), finals, 0);
+    }
+}
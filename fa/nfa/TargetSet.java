@@ -0,0 +1,87 @@
+package fa.nfa;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The targets of one state on one symbol, kept in insertion order in a plain
+ * array. Callers only ever see it as a read only Set, reads never allocate
+ * apart from iterators. A hash index is added once the set gets large so that
+ * building high fan-out states stays linear.
+ * @author Christian Galvan, Andrew Bates
+ */
+final class TargetSet extends AbstractSet<NFAState> {
+    private static final int INDEX_THRESHOLD = 16;
+
+    private NFAState[] items = new NFAState[1];
+    private int size;
+    private Set<NFAState> index; // null while the set is small
+
+    /**
+     * @return true if s was not already in the set
+     */
+    boolean insert(NFAState s) {
+        if (contains(s)) {
+            return false;
+        }
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size < 4 ? size + 1 : size + (size >> 1));
+        }
+        items[size++] = s;
+        if (index != null) {
+            index.add(s);
+        } else if (size > INDEX_THRESHOLD) {
+            index = new HashSet<>(Arrays.asList(items).subList(0, size));
+        }
+        return true;
+    }
+
+    /**
+     * @return the i-th target in insertion order
+     */
+    NFAState get(int i) {
+        return items[i];
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (index != null) {
+            return index.contains(o);
+        }
+        for (int i = 0; i < size; i++) {
+            if (items[i] == o) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<NFAState> iterator() {
+        return new Iterator<NFAState>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public NFAState next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return items[next++];
+            }
+        };
+    }
+}
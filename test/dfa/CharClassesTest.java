@@ -0,0 +1,58 @@
+package test.dfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.dfa.CharClasses;
+import fa.dfa.DFA;
+import fa.dfa.DFATable;
+
+public class CharClassesTest {
+
+	@Test
+	public void testLookup() {
+		CharClasses classes = new CharClasses(new char[] {'a', 'b', '\u20ac', 'c'}, new int[] {0, 1, 0, 1});
+		assertEquals(2, classes.count());
+		assertEquals(4, classes.size());
+		assertEquals(0, classes.classOf('\u20ac'));
+		assertEquals(1, classes.classOf('c'));
+		assertEquals(-1, classes.classOf('d'));
+		assertEquals(-1, classes.classOf('\uffff'));
+		assertArrayEquals(new char[] {'b', 'c'}, classes.members(1));
+		assertEquals('a', classes.representative(0));
+		System.out.println("char classes lookup done");
+	}
+
+	@Test
+	public void testRejectsBadPartitions() {
+		try {
+			new CharClasses(new char[] {'a', 'a'}, new int[] {0, 1});
+			fail("accepted a duplicate char");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new CharClasses(new char[] {'a', 'b'}, new int[] {0, 2});
+			fail("accepted an empty class");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		System.out.println("char classes bad done");
+	}
+
+	@Test
+	public void testTableByClass() {
+		// one state looping on the vowels, every other letter is a class of its own
+		CharClasses classes = new CharClasses(new char[] {'a', 'i', 'o', 'b'}, new int[] {0, 0, 0, 1});
+		DFATable table = new DFATable(classes, new int[] {0, DFATable.DEAD}, new boolean[] {true}, 0);
+		assertTrue(table.accepts("aoiia"));
+		assertFalse(table.accepts("ab"));
+		DFA dfa = table.toDFA(Set.of('a', 'i', 'b'));
+		assertTrue(dfa.accepts("aia"));
+		assertFalse(dfa.accepts("ao"));
+		System.out.println("char classes table done");
+	}
+}
@@ -0,0 +1,79 @@
+package test.dfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.dfa.DFATable;
+import fa.dfa.Hopcroft;
+import fa.dfa.Minimization;
+import fa.nfa.NFA;
+import fa.nfa.SubsetConstruction;
+import test.nfa.RandomNFA;
+
+public class HopcroftTest {
+
+	@Test
+	public void testMergesEquivalentStates() {
+		// two identical branches for (0|1)1, plus a state that can never accept
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addSigma('1');
+		for (String name : new String[] {"s", "a", "b", "f", "g", "trap"}) {
+			nfa.addState(name);
+		}
+		nfa.setStart("s");
+		nfa.setFinal("f");
+		nfa.setFinal("g");
+		nfa.addTransition("s", Set.of("a"), '0');
+		nfa.addTransition("s", Set.of("b"), '1');
+		nfa.addTransition("a", Set.of("f"), '1');
+		nfa.addTransition("b", Set.of("g"), '1');
+		nfa.addTransition("a", Set.of("trap"), '0');
+		nfa.addTransition("trap", Set.of("trap"), '0');
+
+		Minimization m = SubsetConstruction.minimize(nfa);
+		assertEquals(6, m.before());
+		assertEquals(3, m.after());
+		DFATable table = m.table();
+		assertTrue(table.accepts("01"));
+		assertTrue(table.accepts("11"));
+		assertFalse(table.accepts("00"));
+		assertFalse(table.accepts("011"));
+		System.out.println("hopcroft merge done");
+	}
+
+	@Test
+	public void testRandomEquivalence() {
+		Random rnd = new Random(4);
+		for (int round = 0; round < 200; round++) {
+			NFA nfa = RandomNFA.build(rnd, 1 + rnd.nextInt(12), "01", 0.12);
+			Minimization m = SubsetConstruction.minimize(nfa);
+			assertTrue(m.after() <= Math.max(m.before(), 1));
+			// minimal means minimizing again changes nothing
+			assertEquals(m.after(), Hopcroft.minimize(m.table()).after());
+			for (int i = 0; i < 40; i++) {
+				String s = RandomNFA.input(rnd, "01e2", 15);
+				assertEquals(s, nfa.accepts(s), m.table().accepts(s));
+			}
+		}
+		System.out.println("hopcroft equivalence done");
+	}
+
+	@Test
+	public void testEmptyLanguage() {
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		nfa.addState("q");
+		nfa.setStart("q");
+		nfa.addTransition("q", Set.of("q"), 'a');
+		Minimization m = SubsetConstruction.minimize(nfa);
+		assertEquals(1, m.after());
+		assertFalse(m.table().accepts(""));
+		assertFalse(m.table().accepts("aaa"));
+		System.out.println("hopcroft empty language done");
+	}
+}
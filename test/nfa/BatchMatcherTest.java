@@ -0,0 +1,45 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fa.nfa.BatchMatcher;
+import fa.nfa.NFA;
+
+public class BatchMatcherTest {
+
+	@Test
+	public void testMatchesSequentialVerdicts() {
+		Random rnd = new Random(8);
+		NFA nfa = RandomNFA.build(rnd, 40, "01", 0.05);
+		List<String> inputs = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			inputs.add(RandomNFA.input(rnd, "01", 30));
+		}
+		boolean[] expected = new boolean[inputs.size()];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = nfa.accepts(inputs.get(i));
+		}
+
+		try (BatchMatcher batch = new BatchMatcher(nfa, 4)) {
+			assertEquals(4, batch.parallelism());
+			assertArrayEquals(expected, batch.accepts(inputs));
+			assertArrayEquals(expected, batch.accepts(inputs.toArray(new String[0])));
+			BitSet bits = batch.accepts(inputs.stream());
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(expected[i], bits.get(i));
+			}
+		}
+		try (BatchMatcher batch = new BatchMatcher(nfa)) {
+			assertArrayEquals(expected, batch.accepts(inputs));
+			assertEquals(0, batch.accepts(new String[0]).length);
+		}
+		System.out.println("batch matcher done");
+	}
+}
@@ -0,0 +1,64 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.nfa.BitParallelNFA;
+import fa.nfa.CompiledNFA;
+import fa.nfa.NFA;
+
+public class BitParallelNFATest {
+
+	private static void assertSameAnswers(Random rnd, NFA nfa, int words) {
+		CompiledNFA compiled = nfa.compile();
+		BitParallelNFA parallel = BitParallelNFA.of(nfa);
+		assertNotNull(parallel);
+		assertEquals(words, parallel.words());
+		for (int i = 0; i < 40; i++) {
+			String s = RandomNFA.input(rnd, "abe#", 20);
+			assertEquals(s, compiled.accepts(s), parallel.accepts(s));
+			assertEquals(s, compiled.maxCopies(s), parallel.maxCopies(s));
+			assertEquals(s, RandomNFA.accepts(nfa, s), nfa.accepts(s));
+		}
+	}
+
+	@Test
+	public void testSingleWord() {
+		Random rnd = new Random(22);
+		for (int round = 0; round < 200; round++) {
+			assertSameAnswers(rnd, RandomNFA.build(rnd, 1 + rnd.nextInt(64), "ab", 0.05), 1);
+		}
+		System.out.println("bit parallel single word done");
+	}
+
+	@Test
+	public void testMultiWord() {
+		Random rnd = new Random(220);
+		for (int round = 0; round < 40; round++) {
+			int states = 65 + rnd.nextInt(BitParallelNFA.MAX_STATES - 64);
+			assertSameAnswers(rnd, RandomNFA.build(rnd, states, "ab", 0.01), (states + 63) / 64);
+		}
+		System.out.println("bit parallel multi word done");
+	}
+
+	@Test
+	public void testTooLarge() {
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		for (int i = 0; i <= BitParallelNFA.MAX_STATES; i++) {
+			nfa.addState("q" + i);
+			if (i > 0) {
+				nfa.addTransition("q" + (i - 1), Set.of("q" + i), 'a');
+			}
+		}
+		nfa.setStart("q0");
+		nfa.setFinal("q" + BitParallelNFA.MAX_STATES);
+		assertNull(BitParallelNFA.of(nfa));
+		assertTrue(nfa.accepts("a".repeat(BitParallelNFA.MAX_STATES)));
+		System.out.println("bit parallel too large done");
+	}
+}
@@ -0,0 +1,127 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.nfa.CompiledNFA;
+import fa.nfa.Evaluation;
+import fa.nfa.NFA;
+import fa.nfa.SubsetConstruction;
+
+public class CompiledNFATest {
+
+	@Test
+	public void testMatchesSetSimulation() {
+		Random rnd = new Random(361);
+		for (int round = 0; round < 200; round++) {
+			NFA nfa = RandomNFA.build(rnd, 1 + rnd.nextInt(80), "01#", 0.04);
+			CompiledNFA compiled = nfa.compile();
+			for (int i = 0; i < 30; i++) {
+				String s = RandomNFA.input(rnd, "01#e2", 20);
+				assertEquals(s, RandomNFA.accepts(nfa, s), compiled.accepts(s));
+				assertEquals(s, RandomNFA.maxCopies(nfa, s), compiled.maxCopies(s));
+			}
+		}
+		System.out.println("compiled equivalence done");
+	}
+
+	@Test
+	public void testEvaluate() {
+		Random rnd = new Random(14);
+		for (int round = 0; round < 100; round++) {
+			NFA nfa = RandomNFA.build(rnd, 1 + rnd.nextInt(30), "01", 0.06);
+			for (int i = 0; i < 20; i++) {
+				String s = RandomNFA.input(rnd, "01e2", 20);
+				Evaluation result = nfa.evaluate(s);
+				assertEquals(s, RandomNFA.accepts(nfa, s), result.accepted());
+				assertEquals(s, RandomNFA.maxCopies(nfa, s), result.maxCopies());
+				assertEquals(s, RandomNFA.finalStates(nfa, s), result.finalStates());
+				int death = -1;
+				for (int k = 0; k <= s.length() && death < 0; k++) {
+					if (RandomNFA.finalStates(nfa, s.substring(0, k)).isEmpty()) {
+						death = k;
+					}
+				}
+				assertEquals(s, death, result.deathStep());
+			}
+		}
+		System.out.println("compiled evaluate done");
+	}
+
+	@Test
+	public void testAlphabetClasses() {
+		// any CJK ideograph, then 'x' or 'y', then anything again
+		NFA nfa = new NFA();
+		for (char c = '\u4e00'; c < '\u5e00'; c++) {
+			nfa.addSigma(c);
+		}
+		nfa.addSigma('x');
+		nfa.addSigma('y');
+		nfa.addState("p");
+		nfa.addState("q");
+		nfa.addState("r");
+		nfa.setStart("p");
+		nfa.setFinal("r");
+		for (char c = '\u4e00'; c < '\u5e00'; c++) {
+			nfa.addTransition("p", Set.of("q"), c);
+			nfa.addTransition("r", Set.of("r"), c);
+		}
+		nfa.addTransition("q", Set.of("r"), 'x');
+		nfa.addTransition("q", Set.of("r"), 'y');
+		nfa.addTransition("r", Set.of("r"), 'x');
+		nfa.addTransition("r", Set.of("r"), 'y');
+
+		CompiledNFA compiled = nfa.compile();
+		assertEquals(2, compiled.symbolCount());
+		assertEquals(4098, compiled.classes().size());
+		assertTrue(compiled.accepts("\u4e01x\u5dff\u4e00y"));
+		assertFalse(compiled.accepts("\u4e01\u4e02"));
+		assertFalse(compiled.accepts("\u4e01x\u5e00"));
+		assertEquals(2, SubsetConstruction.table(nfa).symbolCount());
+		assertTrue(SubsetConstruction.table(nfa).accepts("\u5000y"));
+		System.out.println("alphabet classes done");
+	}
+
+	@Test
+	public void testRecompilesAfterChange() {
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addState("a");
+		nfa.addState("b");
+		nfa.setStart("a");
+		nfa.setFinal("b");
+		assertFalse(nfa.accepts("0"));
+		CompiledNFA before = nfa.compile();
+		assertSame(before, nfa.compile());
+
+		nfa.addTransition("a", Set.of("b"), '0');
+		assertNotSame(before, nfa.compile());
+		assertTrue(nfa.accepts("0"));
+		assertFalse(before.accepts("0"));
+		System.out.println("compiled invalidation done");
+	}
+
+	@Test
+	public void testWideAutomaton() {
+		// more than one word of bits per set
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		for (int i = 0; i < 200; i++) {
+			nfa.addState("s" + i);
+		}
+		nfa.setStart("s0");
+		nfa.setFinal("s199");
+		for (int i = 0; i < 199; i++) {
+			nfa.addTransition("s" + i, Set.of("s" + (i + 1)), i % 2 == 0 ? 'a' : 'e');
+		}
+		assertTrue(nfa.accepts("a".repeat(100)));
+		assertFalse(nfa.accepts("a".repeat(99)));
+		assertFalse(nfa.accepts("a".repeat(101)));
+		assertEquals(2, nfa.maxCopies("aaa"));
+		System.out.println("compiled wide automaton done");
+	}
+}
@@ -0,0 +1,110 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.Stack;
+
+import org.junit.Test;
+
+import fa.nfa.NFA;
+import fa.nfa.NFAState;
+
+public class EClosureTest {
+
+	/**
+	 * plain depth first search over the 'e' edges
+	 */
+	private Set<NFAState> search(NFAState s) {
+		Stack<NFAState> stack = new Stack<>();
+		Set<NFAState> closure = new LinkedHashSet<>();
+		stack.push(s);
+		while (!stack.isEmpty()) {
+			NFAState current = stack.pop();
+			if (closure.add(current)) {
+				stack.addAll(current.toStates('e'));
+			}
+		}
+		return closure;
+	}
+
+	@Test
+	public void testCycleAndInvalidation() {
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		for (String name : new String[] {"a", "b", "c", "d"}) {
+			nfa.addState(name);
+		}
+		nfa.setStart("a");
+		nfa.addTransition("a", Set.of("b"), 'e');
+		nfa.addTransition("b", Set.of("a"), 'e');
+		nfa.addTransition("c", Set.of("d"), 'e');
+		assertEquals(Set.of(nfa.getState("a"), nfa.getState("b")), nfa.eClosure(nfa.getState("a")));
+		assertEquals(Set.of(nfa.getState("c"), nfa.getState("d")), nfa.eClosure(nfa.getState("c")));
+		assertEquals(Set.of(nfa.getState("d")), nfa.eClosure(nfa.getState("d")));
+
+		// joins the two components, a and b have to see c and d now
+		nfa.addTransition("b", Set.of("c"), 'e');
+		assertEquals(Set.of(nfa.getState("a"), nfa.getState("b"), nfa.getState("c"), nfa.getState("d")),
+				nfa.eClosure(nfa.getState("a")));
+		assertEquals(Set.of(nfa.getState("c"), nfa.getState("d")), nfa.eClosure(nfa.getState("c")));
+
+		// the returned set belongs to the caller
+		nfa.eClosure(nfa.getState("a")).clear();
+		assertEquals(4, nfa.eClosure(nfa.getState("b")).size());
+		System.out.println("eClosure invalidation done");
+	}
+
+	@Test
+	public void testRandomEdits() {
+		Random rnd = new Random(22);
+		for (int round = 0; round < 50; round++) {
+			int n = 2 + rnd.nextInt(60);
+			NFA nfa = RandomNFA.build(rnd, n, "01", 0.03);
+			for (int edit = 0; edit < 20; edit++) {
+				nfa.addTransition("q" + rnd.nextInt(n), Set.of("q" + rnd.nextInt(n)), 'e');
+				for (int i = 0; i < n; i++) {
+					NFAState s = nfa.getState("q" + i);
+					assertEquals(search(s), nfa.eClosure(s));
+				}
+			}
+		}
+		System.out.println("eClosure random edits done");
+	}
+
+	@Test
+	public void testLongChain() {
+		// deep enough to overflow a recursive search
+		NFA nfa = new NFA();
+		int n = 50000;
+		for (int i = 0; i < n; i++) {
+			nfa.addState("s" + i);
+		}
+		nfa.setStart("s0");
+		nfa.setFinal("s" + (n - 1));
+		for (int i = 0; i < n - 1; i++) {
+			nfa.addTransition("s" + i, Set.of("s" + (i + 1)), 'e');
+		}
+		assertEquals(n, nfa.eClosure(nfa.getState("s0")).size());
+		assertTrue(nfa.accepts(""));
+		System.out.println("eClosure long chain done");
+	}
+
+	@Test
+	public void testForeignStates() {
+		NFA nfa = RandomNFA.build(new Random(2), 10, "01", 0.2);
+		NFA other = RandomNFA.build(new Random(3), 10, "01", 0.2);
+		for (int i = 0; i < 10; i++) {
+			NFAState s = other.getState("q" + i);
+			assertEquals(search(s), nfa.eClosure(s));
+		}
+		NFAState a = new NFAState("a");
+		NFAState b = new NFAState("b");
+		a.addTransition('e', b);
+		b.addTransition('e', a);
+		assertEquals(Set.of(a, b), nfa.eClosure(a));
+		System.out.println("eClosure foreign states done");
+	}
+}
@@ -0,0 +1,131 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.nfa.BitParallelNFA;
+import fa.nfa.Engine;
+import fa.nfa.NFA;
+import fa.nfa.Regex;
+
+public class EngineTest {
+
+	/**
+	 * @return a chain q0 -a-> q1 -a-> ... -> q(n-1), every state also loops on b
+	 */
+	private static NFA chain(int n) {
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		nfa.addSigma('b');
+		for (int i = 0; i < n; i++) {
+			nfa.addState("q" + i);
+			nfa.addTransition("q" + i, Set.of("q" + i), 'b');
+			if (i > 0) {
+				nfa.addTransition("q" + (i - 1), Set.of("q" + i), 'a');
+			}
+		}
+		nfa.setStart("q0");
+		nfa.setFinal("q" + (n - 1));
+		return nfa;
+	}
+
+	private static void assertSameAnswers(Random rnd, NFA nfa) {
+		for (int i = 0; i < 40; i++) {
+			String s = RandomNFA.input(rnd, "abe#", 30);
+			assertEquals(s, nfa.compile().accepts(s), nfa.accepts(s));
+			assertEquals(s, nfa.compile().maxCopies(s), nfa.maxCopies(s));
+		}
+	}
+
+	@Test
+	public void testDeterministic() {
+		NFA nfa = chain(1000);
+		assertEquals(Engine.DFA_TABLE, nfa.engine());
+		assertTrue(nfa.accepts("a".repeat(999)));
+		assertTrue(nfa.accepts("bab" + "a".repeat(998) + "bb"));
+		assertFalse(nfa.accepts("a".repeat(998)));
+		assertFalse(nfa.accepts("a".repeat(999) + "e"));
+		assertEquals(1, nfa.maxCopies("aaa"));
+		assertSameAnswers(new Random(23), nfa);
+
+		assertEquals(Engine.DFA_TABLE, new NFA().engine());
+		assertFalse(new NFA().accepts(""));
+		assertEquals(0, new NFA().maxCopies("a"));
+		System.out.println("engine dfa table done");
+	}
+
+	@Test
+	public void testSelection() {
+		NFA nfa = chain(10);
+		nfa.addTransition("q0", Set.of("q0"), 'a');
+		assertEquals(Engine.BIT_PARALLEL, nfa.engine());
+
+		nfa = chain(BitParallelNFA.MAX_STATES + 1);
+		nfa.addTransition("q0", Set.of("q0"), 'a');
+		assertEquals(Engine.SPARSE_SET, nfa.engine());
+		assertTrue(nfa.accepts("aa" + "a".repeat(BitParallelNFA.MAX_STATES)));
+		assertEquals(2, nfa.maxCopies("ab"));
+
+		// long epsilon chains over a Sigma too large for the lazy DFA
+		nfa = chain(BitParallelNFA.MAX_STATES + 1);
+		for (int i = 0; i < 300; i++) {
+			nfa.addSigma((char) ('\u0100' + i));
+		}
+		for (int i = 1; i <= BitParallelNFA.MAX_STATES; i++) {
+			nfa.addTransition("q" + (i - 1), Set.of("q" + i), 'e');
+		}
+		assertEquals(Engine.SIMULATION, nfa.engine());
+		assertTrue(nfa.accepts(""));
+		assertEquals(BitParallelNFA.MAX_STATES + 1, nfa.maxCopies("b"));
+
+		// Thompson construction leaves about one epsilon edge per state
+		nfa = Regex.compile("(a|b)*a(a|b)(a|b)(a|b)".repeat(20));
+		assertTrue(nfa.compile().stateCount() > BitParallelNFA.MAX_STATES);
+		assertEquals(Engine.LAZY_DFA, nfa.engine());
+		assertSameAnswers(new Random(230), nfa);
+		System.out.println("engine selection done");
+	}
+
+	@Test
+	public void testReselectedAfterChange() {
+		NFA nfa = chain(5);
+		assertEquals(Engine.DFA_TABLE, nfa.engine());
+		assertFalse(nfa.accepts("aaa"));
+		nfa.addTransition("q0", Set.of("q2"), 'a');
+		assertEquals(Engine.BIT_PARALLEL, nfa.engine());
+		assertTrue(nfa.accepts("aaa"));
+		assertEquals(2, nfa.maxCopies("a"));
+		System.out.println("engine reselection done");
+	}
+
+	@Test
+	public void testInterleavedChanges() {
+		Random rnd = new Random(231);
+		NFA nfa = chain(40);
+		for (int i = 0; i < 60; i++) {
+			// every change makes the next match the first on a new compiled form
+			nfa.addTransition("q" + rnd.nextInt(40), Set.of("q" + rnd.nextInt(40)), "abe".charAt(rnd.nextInt(3)));
+			String s = RandomNFA.input(rnd, "abe", 20);
+			for (int j = 0; j < i % 3 + 1; j++) {
+				assertEquals(s, nfa.compile().accepts(s), nfa.accepts(s));
+				assertEquals(s, nfa.compile().maxCopies(s), nfa.maxCopies(s));
+			}
+		}
+		assertNotEquals(Engine.DFA_TABLE, nfa.engine());
+		System.out.println("engine interleaved changes done");
+	}
+
+	@Test
+	public void testRandom() {
+		Random rnd = new Random(2300);
+		for (int round = 0; round < 20; round++) {
+			assertSameAnswers(rnd, RandomNFA.build(rnd, 200 + rnd.nextInt(200), "ab", 0.004 + 0.01 * rnd.nextDouble()));
+		}
+		System.out.println("engine random done");
+	}
+
+}
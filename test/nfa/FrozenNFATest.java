@@ -0,0 +1,130 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import fa.nfa.FrozenNFA;
+import fa.nfa.NFA;
+
+public class FrozenNFATest {
+
+	private NFA nfa() {
+		NFA nfa = new NFA();
+		nfa.addSigma('#');
+		nfa.addSigma('0');
+		nfa.addSigma('1');
+		nfa.addState("W");
+		nfa.setStart("W");
+		nfa.addState("L");
+		nfa.addState("I");
+		nfa.addState("N");
+		nfa.setFinal("N");
+		nfa.addTransition("W", Set.of("N"), '#');
+		nfa.addTransition("W", Set.of("L"), 'e');
+		nfa.addTransition("L", Set.of("L", "N"), '0');
+		nfa.addTransition("L", Set.of("I"), 'e');
+		nfa.addTransition("I", Set.of("I", "N"), '1');
+		nfa.addTransition("N", Set.of("W"), '#');
+		return nfa;
+	}
+
+	@Test
+	public void testSameAnswers() {
+		NFA nfa = nfa();
+		FrozenNFA frozen = nfa.freeze();
+		assertEquals(nfa.toString(), frozen.toString());
+		assertEquals(nfa.getSigma(), frozen.getSigma());
+		assertEquals(nfa.isDFA(), frozen.isDFA());
+		for (String name : new String[] {"W", "L", "I", "N", "Z"}) {
+			assertEquals(nfa.isFinal(name), frozen.isFinal(name));
+			assertEquals(nfa.isStart(name), frozen.isStart(name));
+		}
+		assertEquals(Set.of(frozen.getState("W"), frozen.getState("L"), frozen.getState("I")),
+				frozen.eClosure(frozen.getState("W")));
+		assertEquals(Set.of(frozen.getState("I"), frozen.getState("N")),
+				frozen.getToState(frozen.getState("I"), '1'));
+		for (String s : new String[] {"###", "111#00", "01#11##", "#01000###", "011#00010#", "e", "23"}) {
+			assertEquals(s, nfa.accepts(s), frozen.accepts(s));
+			assertEquals(s, nfa.maxCopies(s), frozen.maxCopies(s));
+		}
+		System.out.println("frozen answers done");
+	}
+
+	@Test
+	public void testIsolatedFromOriginal() {
+		NFA nfa = nfa();
+		FrozenNFA frozen = nfa.freeze();
+		assertNotSame(nfa.getState("W"), frozen.getState("W"));
+		nfa.addState("X");
+		nfa.setFinal("W");
+		nfa.addTransition("W", Set.of("X"), '0');
+		assertNull(frozen.getState("X"));
+		assertFalse(frozen.accepts(""));
+		assertTrue(nfa.accepts(""));
+		System.out.println("frozen isolation done");
+	}
+
+	@Test
+	public void testRejectsChanges() {
+		FrozenNFA frozen = nfa().freeze();
+		List<Runnable> changes = List.of(
+				() -> frozen.addState("X"),
+				() -> frozen.setFinal("W"),
+				() -> frozen.setStart("N"),
+				() -> frozen.addSigma('2'),
+				() -> frozen.addTransition("W", Set.of("N"), '0'),
+				() -> frozen.getState("W").addTransition('0', frozen.getState("N")),
+				() -> frozen.getSigma().add('2'));
+		for (Runnable change : changes) {
+			try {
+				change.run();
+				fail("frozen automaton changed");
+			} catch (UnsupportedOperationException expected) {
+			}
+		}
+		System.out.println("frozen rejects changes done");
+	}
+
+	@Test
+	public void testConcurrentReaders() throws Exception {
+		Random rnd = new Random(9);
+		NFA nfa = RandomNFA.build(rnd, 60, "01", 0.05);
+		List<String> inputs = new ArrayList<>();
+		List<Boolean> expected = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			String s = RandomNFA.input(rnd, "01", 40);
+			inputs.add(s);
+			expected.add(nfa.accepts(s));
+		}
+		FrozenNFA frozen = nfa.freeze();
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				results.add(pool.submit(() -> {
+					for (int i = 0; i < inputs.size(); i++) {
+						if (frozen.accepts(inputs.get(i)) != expected.get(i)) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		System.out.println("frozen concurrent readers done");
+	}
+}
@@ -0,0 +1,73 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.nfa.MatchScanner;
+import fa.nfa.MatchScanner.Match;
+import fa.nfa.NFA;
+
+public class MatchScannerTest {
+
+	@Test
+	public void testKeyword() {
+		// the word 101
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addSigma('1');
+		for (String name : new String[] {"a", "b", "c", "d"}) {
+			nfa.addState(name);
+		}
+		nfa.setStart("a");
+		nfa.setFinal("d");
+		nfa.addTransition("a", Set.of("b"), '1');
+		nfa.addTransition("b", Set.of("c"), '0');
+		nfa.addTransition("c", Set.of("d"), '1');
+		MatchScanner scanner = new MatchScanner(nfa);
+		assertArrayEquals(new int[] {3, 5, 10}, scanner.findEnds("1010100101"));
+		assertEquals(List.of(new Match(0, 3), new Match(2, 5), new Match(7, 10)),
+				scanner.findAll("1010100101"));
+		assertEquals(0, scanner.findEnds("").length);
+		System.out.println("scanner keyword done");
+	}
+
+	@Test
+	public void testMatchesBruteForce() {
+		Random rnd = new Random(12);
+		for (int round = 0; round < 150; round++) {
+			NFA nfa = RandomNFA.build(rnd, 1 + rnd.nextInt(15), "01", 0.1);
+			MatchScanner scanner = new MatchScanner(nfa);
+			for (int i = 0; i < 5; i++) {
+				String text = RandomNFA.input(rnd, "01e", 25);
+				List<Integer> ends = new ArrayList<>();
+				List<Match> matches = new ArrayList<>();
+				for (int end = 0; end <= text.length(); end++) {
+					for (int start = 0; start <= end; start++) {
+						if (nfa.accepts(text.substring(start, end))) {
+							ends.add(end);
+							matches.add(new Match(start, end));
+							break;
+						}
+					}
+				}
+				assertEquals(text, ends, toList(scanner.findEnds(text)));
+				assertEquals(text, matches, scanner.findAll(text));
+			}
+		}
+		System.out.println("scanner brute force done");
+	}
+
+	private List<Integer> toList(int[] values) {
+		List<Integer> list = new ArrayList<>();
+		for (int v : values) {
+			list.add(v);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,75 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.nfa.CompiledNFA;
+import fa.nfa.MatcherSession;
+import fa.nfa.NFA;
+
+public class MatcherSessionTest {
+
+	@Test
+	public void testChunksMatchWholeInput() {
+		Random rnd = new Random(11);
+		for (int round = 0; round < 100; round++) {
+			NFA nfa = RandomNFA.build(rnd, 1 + rnd.nextInt(30), "01", 0.08);
+			CompiledNFA compiled = nfa.compile();
+			MatcherSession session = compiled.newSession();
+			for (int i = 0; i < 20; i++) {
+				String s = RandomNFA.input(rnd, "01e", 30);
+				session.reset();
+				// cut s into random chunks, alternating the two feed methods
+				int at = 0;
+				boolean useArray = false;
+				while (at < s.length()) {
+					int end = at + 1 + rnd.nextInt(s.length() - at);
+					if (useArray) {
+						char[] chunk = s.toCharArray();
+						session.feed(chunk, at, end - at);
+					} else {
+						session.feed(s.subSequence(at, end));
+					}
+					useArray = !useArray;
+					at = end;
+				}
+				assertEquals(s, nfa.accepts(s), session.isAccepting());
+				// a dead session stops counting at the character that killed it
+				assertTrue(session.consumed() <= s.length());
+				if (!session.isDead()) {
+					assertEquals(s.length(), session.consumed());
+				}
+			}
+		}
+		System.out.println("session chunks done");
+	}
+
+	@Test
+	public void testDeadAndReset() {
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		nfa.addState("q");
+		nfa.setStart("q");
+		nfa.setFinal("q");
+		nfa.addTransition("q", Set.of("q"), 'a');
+		MatcherSession session = nfa.newSession();
+		assertTrue(session.isAccepting());
+		assertTrue(session.feed("aaa"));
+		assertTrue(session.feed(new char[] {'a'}));
+		assertEquals(4, session.consumed());
+		assertFalse(session.feed("ab"));
+		assertTrue(session.isDead());
+		assertFalse(session.isAccepting());
+		assertFalse(session.feed("aaaa"));
+		assertEquals(6, session.consumed());
+		session.reset();
+		assertFalse(session.isDead());
+		assertTrue(session.isAccepting());
+		assertEquals(0, session.consumed());
+		System.out.println("session dead and reset done");
+	}
+}
@@ -0,0 +1,52 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fa.nfa.MultiMatcher;
+import fa.nfa.NFA;
+import fa.nfa.Regex;
+
+public class MultiMatcherTest {
+
+	@Test
+	public void testSameAsEachRule() {
+		Random rnd = new Random(21);
+		List<NFA> rules = new ArrayList<>();
+		for (int r = 0; r < 40; r++) {
+			rules.add(RandomNFA.build(rnd, 1 + rnd.nextInt(15), "ab", 0.12));
+		}
+		MultiMatcher matcher = new MultiMatcher(rules);
+		assertEquals(40, matcher.ruleCount());
+		for (int i = 0; i < 300; i++) {
+			String s = RandomNFA.input(rnd, "abe", 10);
+			BitSet expected = new BitSet();
+			for (int r = 0; r < rules.size(); r++) {
+				if (rules.get(r).accepts(s)) {
+					expected.set(r);
+				}
+			}
+			assertEquals(s, expected, matcher.matches(s));
+			assertEquals(s, !expected.isEmpty(), matcher.matchesAny(s));
+		}
+		System.out.println("multi matcher done");
+	}
+
+	@Test
+	public void testRules() {
+		List<NFA> rules = List.of(Regex.compile("[0-9]+"), Regex.compile("[a-d]+"), Regex.compile("[a-d0-9]*"), new NFA());
+		MultiMatcher matcher = new MultiMatcher(rules);
+		assertEquals(BitSet.valueOf(new long[] {0b101}), matcher.matches("123"));
+		assertEquals(BitSet.valueOf(new long[] {0b110}), matcher.matches("abc"));
+		assertEquals(BitSet.valueOf(new long[] {0b100}), matcher.matches("a1"));
+		assertEquals(BitSet.valueOf(new long[] {0b100}), matcher.matches(""));
+		assertFalse(matcher.matchesAny("A"));
+		System.out.println("multi matcher rules done");
+	}
+}
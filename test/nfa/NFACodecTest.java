@@ -0,0 +1,185 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fa.dfa.DFATable;
+import fa.nfa.NFA;
+import fa.nfa.NFACodec;
+import fa.nfa.SubsetConstruction;
+
+public class NFACodecTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random rnd = new Random(15);
+		for (int round = 0; round < 30; round++) {
+			NFA nfa = RandomNFA.build(rnd, 1 + rnd.nextInt(80), "ab", 0.05);
+			int flags = round % 4; // none, closures, table, both
+			Path file = folder.newFile().toPath();
+			NFACodec.write(nfa, file, flags);
+			NFA loaded = NFACodec.read(file);
+			assertEquals(nfa.toString(), loaded.toString());
+			for (int i = 0; i < 20; i++) {
+				String s = RandomNFA.input(rnd, "abe", 12);
+				assertEquals(s, nfa.accepts(s), loaded.accepts(s));
+				assertEquals(s, nfa.maxCopies(s), loaded.maxCopies(s));
+			}
+			for (String name : new String[] {"q0", "q1", "q7"}) {
+				if (nfa.getState(name) != null) {
+					assertEquals(nfa.eClosure(nfa.getState(name)).toString(),
+							loaded.eClosure(loaded.getState(name)).toString());
+				}
+			}
+
+			DFATable table = NFACodec.readTable(file);
+			if ((flags & NFACodec.DFA) == 0) {
+				assertNull(table);
+			} else {
+				DFATable expected = SubsetConstruction.table(nfa);
+				assertEquals(expected.stateCount(), table.stateCount());
+				assertEquals(expected.symbolCount(), table.symbolCount());
+				for (int i = 0; i < 20; i++) {
+					String s = RandomNFA.input(rnd, "ab", 12);
+					assertEquals(s, nfa.accepts(s), table.accepts(s));
+				}
+			}
+		}
+		System.out.println("codec round trip done");
+	}
+
+	@Test
+	public void testLoadedNFAStaysEditable() throws IOException {
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addState("\u00e9tat");
+		nfa.addState("b");
+		nfa.setStart("\u00e9tat");
+		nfa.setFinal("b");
+		nfa.addTransition("\u00e9tat", Set.of("b"), '0');
+		Path file = folder.newFile().toPath();
+		NFACodec.write(nfa, file, NFACodec.CLOSURES);
+
+		NFA loaded = NFACodec.read(file);
+		assertTrue(loaded.accepts("0"));
+		assertFalse(loaded.accepts(""));
+		// the preloaded closures are dropped like computed ones
+		loaded.addTransition("\u00e9tat", Set.of("b"), 'e');
+		assertTrue(loaded.accepts(""));
+		assertEquals(Set.of(loaded.getState("\u00e9tat"), loaded.getState("b")),
+				loaded.eClosure(loaded.getState("\u00e9tat")));
+		System.out.println("codec editable done");
+	}
+
+	@Test
+	public void testRejectsBadFiles() throws IOException {
+		Path file = folder.newFile().toPath();
+		Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+		try {
+			NFACodec.read(file);
+			fail("read a file without the magic number");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("not an automaton"));
+		}
+
+		NFACodec.write(SubsetConstructionTest.blowup(4), file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+		try {
+			NFACodec.read(file);
+			fail("read a truncated file");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("truncated"));
+		}
+		System.out.println("codec bad files done");
+	}
+
+	/**
+	 * @return p -a-> q with q final, saved with the given flags
+	 */
+	private byte[] small(Path file, int flags) throws IOException {
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		nfa.addState("p");
+		nfa.addState("q");
+		nfa.setStart("p");
+		nfa.setFinal("q");
+		nfa.addTransition("p", Set.of("q"), 'a');
+		NFACodec.write(nfa, file, flags);
+		return Files.readAllBytes(file);
+	}
+
+	/**
+	 * writes bytes with the int at offset replaced and expects reading to fail
+	 */
+	private void assertCorrupt(Path file, byte[] bytes, int offset, int value, boolean table) throws IOException {
+		byte[] bad = bytes.clone();
+		ByteBuffer.wrap(bad).putInt(offset, value);
+		Files.write(file, bad);
+		try {
+			if (table) {
+				NFACodec.readTable(file);
+			} else {
+				NFACodec.read(file);
+			}
+			fail("read a file with " + value + " at " + offset);
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("corrupt"));
+		}
+	}
+
+	@Test
+	public void testRejectsBadAutomaton() throws IOException {
+		Path file = folder.newFile().toPath();
+		byte[] bytes = small(file, NFACodec.CLOSURES);
+		assertEquals(82, bytes.length);
+		assertTrue(NFACodec.read(file).accepts("a"));
+		assertCorrupt(file, bytes, 12, Integer.MAX_VALUE, false); // state count
+		assertCorrupt(file, bytes, 16, Integer.MAX_VALUE, false); // name length
+		assertCorrupt(file, bytes, 32, 2, false); // start id
+		assertCorrupt(file, bytes, 40, -3, false); // final id
+		assertCorrupt(file, bytes, 48, 'b' << 16, false); // symbol outside Sigma
+		assertCorrupt(file, bytes, 54, 7, false); // target id
+		System.out.println("codec bad automaton done");
+	}
+
+	@Test
+	public void testRejectsBadClosures() throws IOException {
+		Path file = folder.newFile().toPath();
+		byte[] bytes = small(file, NFACodec.CLOSURES);
+		assertCorrupt(file, bytes, 62, 2, false); // words
+		assertCorrupt(file, bytes, 62, Integer.MAX_VALUE, false);
+		assertCorrupt(file, bytes, 70, 0, false); // p missing from its own closure
+		assertCorrupt(file, bytes, 82 - 4, 2 | 1 << 5, false); // state 5 in the closure of q
+		System.out.println("codec bad closures done");
+	}
+
+	@Test
+	public void testRejectsBadTable() throws IOException {
+		Path file = folder.newFile().toPath();
+		byte[] bytes = small(file, NFACodec.DFA);
+		assertEquals(90, bytes.length);
+		assertTrue(NFACodec.readTable(file).accepts("a"));
+		assertCorrupt(file, bytes, 62, Integer.MAX_VALUE, true); // chars
+		assertCorrupt(file, bytes, 72, Integer.MAX_VALUE, true); // states
+		assertCorrupt(file, bytes, 72, 0, true);
+		assertCorrupt(file, bytes, 76, 2, true); // start
+		assertCorrupt(file, bytes, 82, 9, true); // delta
+		assertCorrupt(file, bytes, 86, -2, true);
+		System.out.println("codec bad table done");
+	}
+}
@@ -0,0 +1,106 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.nfa.NFA;
+import fa.nfa.NFAState;
+
+public class NFAStateTest {
+
+	@Test
+	public void testTransitions() {
+		NFAState a = new NFAState("a");
+		NFAState b = new NFAState("b");
+		a.addTransition('1', b);
+		a.addTransition('0', a);
+		a.addTransition('1', a);
+		a.addTransition('1', b);
+		assertEquals(Set.of(a, b), a.toStates('1'));
+		assertEquals(2, a.toStates('1').size());
+		assertEquals(Set.of(a), a.toStates('0'));
+		assertTrue(a.toStates('e').isEmpty());
+		// misses share one set instead of allocating
+		assertSame(a.toStates('x'), b.toStates('y'));
+		System.out.println("nfastate transitions done");
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() {
+		NFAState a = new NFAState("a");
+		a.addTransition('0', a);
+		a.toStates('0').add(new NFAState("b"));
+	}
+
+	@Test
+	public void testWideFanOut() {
+		NFAState a = new NFAState("a");
+		List<NFAState> added = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			NFAState s = new NFAState("s" + i);
+			added.add(s);
+			a.addTransition('0', s);
+			a.addTransition('0', s);
+		}
+		for (char c = 'z'; c >= 'a'; c--) {
+			a.addTransition(c, a);
+		}
+		assertEquals(1000, a.toStates('0').size());
+		// insertion order is kept
+		assertEquals(added, new ArrayList<>(a.toStates('0')));
+		assertTrue(a.toStates('0').contains(added.get(999)));
+		assertEquals(Set.of(a), a.toStates('m'));
+		System.out.println("nfastate fan out done");
+	}
+
+	@Test
+	public void testChangesReachTheOwner() {
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addState("a");
+		nfa.addState("b");
+		nfa.setStart("a");
+		nfa.setFinal("b");
+		nfa.setResultCache(8);
+		assertFalse(nfa.accepts(""));
+		assertFalse(nfa.accepts("0"));
+		assertEquals(1, nfa.maxCopies(""));
+
+		nfa.getState("a").addTransition('e', nfa.getState("b"));
+		assertEquals(Set.of(nfa.getState("a"), nfa.getState("b")), nfa.eClosure(nfa.getState("a")));
+		assertTrue(nfa.accepts(""));
+		assertEquals(2, nfa.maxCopies(""));
+		nfa.getState("b").addTransition('0', nfa.getState("b"));
+		assertTrue(nfa.accepts("0"));
+		System.out.println("nfastate owner changes done");
+	}
+
+	@Test
+	public void testRejectsForeignTargets() {
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addState("a");
+		NFA other = new NFA();
+		other.addSigma('0');
+		other.addState("a");
+		List<Runnable> changes = List.of(
+				() -> nfa.getState("a").addTransition('0', new NFAState("b")),
+				() -> nfa.getState("a").addTransition('0', other.getState("a")),
+				() -> nfa.getState("a").addTransition('1', nfa.getState("a")));
+		for (Runnable change : changes) {
+			try {
+				change.run();
+				fail("linked a state it does not own");
+			} catch (IllegalArgumentException expected) {
+			}
+		}
+		assertEquals(0, nfa.getState("a").toStates('0').size());
+		assertFalse(nfa.accepts("0"));
+		System.out.println("nfastate foreign targets done");
+	}
+}
@@ -2,7 +2,11 @@ package test.nfa;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Test;
 
@@ -297,4 +301,86 @@ public class NFATest {
 		System.out.println("nfa1 maxCopies done");
 	}
 
+	@Test
+	public void testIsDFA() {
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addSigma('1');
+		nfa.addState("a");
+		nfa.addState("b");
+		nfa.setStart("a");
+		nfa.setFinal("b");
+		nfa.addTransition("a", Set.of("b"), '0');
+		nfa.addTransition("a", Set.of("a"), '1');
+		nfa.addTransition("b", Set.of("b"), '0');
+		nfa.addTransition("b", Set.of("a"), '1');
+		assertTrue(nfa.isDFA());
+		nfa.addTransition("b", Set.of("a"), 'e');
+		assertFalse(nfa.isDFA());
+		System.out.println("isDFA done");
+	}
+
+	@Test
+	public void testConcurrentFirstUse() throws InterruptedException {
+		for (int round = 0; round < 20; round++) {
+			// two equal automata, one answered by a single thread first
+			NFA reference = RandomNFA.build(new Random(round), 300, "ab", 0.01);
+			NFA fresh = RandomNFA.build(new Random(round), 300, "ab", 0.01);
+			Random rnd = new Random(-round);
+			String[] inputs = new String[50];
+			List<Object> expected = new ArrayList<>();
+			for (int i = 0; i < inputs.length; i++) {
+				inputs[i] = RandomNFA.input(rnd, "abe", 20);
+				expected.add(reference.accepts(inputs[i]));
+				expected.add(reference.maxCopies(inputs[i]));
+			}
+			for (int q = 0; q < 300; q++) {
+				expected.add(reference.eClosure(reference.getState("q" + q)).size());
+			}
+
+			CountDownLatch go = new CountDownLatch(1);
+			List<List<Object>> seen = new ArrayList<>();
+			List<Thread> threads = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				List<Object> answers = new ArrayList<>();
+				seen.add(answers);
+				boolean closuresFirst = t % 2 == 0;
+				Thread thread = new Thread(() -> {
+					try {
+						go.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					List<Object> closures = new ArrayList<>();
+					if (closuresFirst) {
+						closures(fresh, closures);
+					}
+					for (String s : inputs) {
+						answers.add(fresh.accepts(s));
+						answers.add(fresh.maxCopies(s));
+					}
+					if (!closuresFirst) {
+						closures(fresh, closures);
+					}
+					answers.addAll(closures);
+				});
+				threads.add(thread);
+				thread.start();
+			}
+			go.countDown();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			for (List<Object> answers : seen) {
+				assertEquals(expected, answers);
+			}
+		}
+		System.out.println("concurrent first use done");
+	}
+
+	private static void closures(NFA nfa, List<Object> sizes) {
+		for (int q = 0; q < 300; q++) {
+			sizes.add(nfa.eClosure(nfa.getState("q" + q)).size());
+		}
+	}
 }
@@ -0,0 +1,145 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fa.nfa.NFA;
+import fa.nfa.NFAState;
+import fa.nfa.OffHeapNFA;
+
+public class OffHeapNFATest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static void assertSameAnswers(Random rnd, NFA nfa, OffHeapNFA off) {
+		assertEquals(nfa.toString(), off.toString());
+		assertEquals(nfa.getSigma(), off.getSigma());
+		for (int i = 0; i < 30; i++) {
+			String s = RandomNFA.input(rnd, "abce", 15);
+			assertEquals(s, nfa.accepts(s), off.accepts(s));
+			assertEquals(s, nfa.maxCopies(s), off.maxCopies(s));
+		}
+		for (int i = 0; i < 10; i++) {
+			String name = "q" + i;
+			assertEquals(name, nfa.isFinal(name), off.isFinal(name));
+			assertEquals(name, nfa.isStart(name), off.isStart(name));
+			NFAState state = nfa.getState(name);
+			if (state != null) {
+				NFAState other = off.getState(name);
+				assertSame(other, off.getState(name));
+				assertEquals(nfa.eClosure(state).toString(), off.eClosure(other).toString());
+				assertEquals(nfa.getToState(state, 'a').toString(), off.getToState(other, 'a').toString());
+			}
+		}
+	}
+
+	@Test
+	public void testDirectBuffer() {
+		Random rnd = new Random(16);
+		for (int round = 0; round < 40; round++) {
+			NFA nfa = RandomNFA.build(rnd, 1 + rnd.nextInt(100), "ab", 0.04);
+			assertSameAnswers(rnd, nfa, OffHeapNFA.of(nfa));
+		}
+		System.out.println("off heap direct done");
+	}
+
+	@Test
+	public void testMappedFile() throws IOException {
+		Random rnd = new Random(61);
+		NFA nfa = RandomNFA.build(rnd, 300, "ab", 0.01);
+		Path file = folder.newFile().toPath();
+		OffHeapNFA.write(nfa, file);
+		OffHeapNFA off = OffHeapNFA.map(file);
+		assertEquals(file.toFile().length(), off.byteSize());
+		assertEquals(300, off.stateCount());
+		assertSameAnswers(rnd, nfa, off);
+		System.out.println("off heap mapped done");
+	}
+
+	@Test
+	public void testReadOnly() {
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addState("a");
+		nfa.setStart("a");
+		nfa.setFinal("a");
+		nfa.addTransition("a", Set.of("a"), '0');
+		OffHeapNFA off = OffHeapNFA.of(nfa);
+		assertTrue(off.isDFA());
+		assertTrue(off.accepts("000"));
+		assertNull(off.getState("b"));
+		try {
+			off.addState("b");
+			fail("changed an off heap automaton");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			off.eClosure(nfa.getState("a"));
+			fail("took the closure of a foreign state");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		System.out.println("off heap read only done");
+	}
+
+	/**
+	 * writes image with the ints at the given offsets replaced and expects mapping to fail
+	 */
+	private void assertCorrupt(Path file, byte[] image, int value, int... offsets) throws IOException {
+		byte[] bad = image.clone();
+		ByteBuffer buf = ByteBuffer.wrap(bad).order(ByteOrder.LITTLE_ENDIAN);
+		for (int offset : offsets) {
+			buf.putInt(offset, value);
+		}
+		Files.write(file, bad);
+		try {
+			OffHeapNFA.map(file);
+			fail("mapped an image with " + value + " at " + offsets[0]);
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRejectsCorruptImages() throws IOException {
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addState("a");
+		nfa.addState("b");
+		nfa.setStart("a");
+		nfa.setFinal("b");
+		nfa.addTransition("a", Set.of("b"), '0');
+		Path file = folder.newFile().toPath();
+		OffHeapNFA.write(nfa, file);
+		byte[] image = Files.readAllBytes(file);
+		// header 40, symbols 44, Sigma 48, finals 52, final bits 56, rows 68,
+		// targets 72, name offsets 84, names 88, name table of 4 slots 104
+		assertEquals(104, image.length);
+		assertTrue(OffHeapNFA.map(file).accepts("0"));
+
+		assertCorrupt(file, image, -1, 8); // state count
+		assertCorrupt(file, image, Integer.MAX_VALUE, 12); // symbol count
+		assertCorrupt(file, image, 5, 20); // start
+		assertCorrupt(file, image, 3, 36); // name table size, not a power of two
+		assertCorrupt(file, image, 2, 36); // no larger than the state count
+		assertCorrupt(file, image, 7, 48); // final id
+		assertCorrupt(file, image, 5, 56); // row offset
+		assertCorrupt(file, image, 9, 68); // target id
+		assertCorrupt(file, image, 100, 76); // name offset
+		assertCorrupt(file, image, 1, 88, 92, 96, 100); // name table without an empty slot
+		System.out.println("off heap corrupt images done");
+	}
+}
@@ -0,0 +1,115 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.nfa.NFA;
+import fa.nfa.Operations;
+import fa.nfa.Regex;
+
+public class OperationsTest {
+
+	private static boolean concatenation(NFA a, NFA b, String s) {
+		for (int i = 0; i <= s.length(); i++) {
+			if (a.accepts(s.substring(0, i)) && b.accepts(s.substring(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean iteration(NFA a, String s) {
+		boolean[] split = new boolean[s.length() + 1]; // split[i]: s[0, i) is in a*
+		split[0] = true;
+		for (int i = 1; i <= s.length(); i++) {
+			for (int j = 0; j < i && !split[i]; j++) {
+				split[i] = split[j] && a.accepts(s.substring(j, i));
+			}
+		}
+		return split[s.length()];
+	}
+
+	/**
+	 * counts the names on the Q line of toString
+	 */
+	private static int states(NFA nfa) {
+		return nfa.toString().split("\n")[0].split(" ").length - 4;
+	}
+
+	@Test
+	public void testAgainstDefinitions() {
+		Random rnd = new Random(20);
+		for (int round = 0; round < 60; round++) {
+			NFA a = RandomNFA.build(rnd, 1 + rnd.nextInt(12), "ab", 0.15);
+			NFA b = RandomNFA.build(rnd, 1 + rnd.nextInt(12), "ab", 0.15);
+			NFA union = Operations.union(a, b);
+			NFA concat = Operations.concat(a, b);
+			NFA star = Operations.star(a);
+			NFA intersection = Operations.intersection(a, b);
+			NFA complement = Operations.complement(a);
+			NFA difference = Operations.difference(a, b);
+			for (int i = 0; i < 40; i++) {
+				String s = RandomNFA.input(rnd, "ab", 8);
+				boolean inA = a.accepts(s);
+				boolean inB = b.accepts(s);
+				assertEquals(s, inA || inB, union.accepts(s));
+				assertEquals(s, concatenation(a, b, s), concat.accepts(s));
+				assertEquals(s, iteration(a, s), star.accepts(s));
+				assertEquals(s, inA && inB, intersection.accepts(s));
+				assertEquals(s, !inA, complement.accepts(s));
+				assertEquals(s, inA && !inB, difference.accepts(s));
+			}
+			for (int i = 0; i < 40; i++) {
+				// an 'e' in the input follows the 'e' edges of the operands only
+				String s = RandomNFA.input(rnd, "abe", 8);
+				assertEquals(s, a.accepts(s) || b.accepts(s), union.accepts(s));
+				assertEquals(s, concatenation(a, b, s), concat.accepts(s));
+				assertEquals(s, iteration(a, s), star.accepts(s));
+			}
+		}
+		System.out.println("operations done");
+	}
+
+	@Test
+	public void testProductIsLazy() {
+		// (ab)* against a*: only the start pair survives the first symbol
+		NFA ab = Regex.compile("(ab)*");
+		NFA a = Regex.compile("a*");
+		NFA product = Operations.intersection(ab, a);
+		assertTrue(product.accepts(""));
+		assertFalse(product.accepts("a"));
+		assertFalse(product.accepts("ab"));
+		assertTrue(states(product) < states(ab) * states(a));
+		System.out.println("lazy product done");
+	}
+
+	@Test
+	public void testInputECannotCrossTheGlue() {
+		NFA empty = new NFA(); // accepts only the empty string
+		empty.addSigma('a');
+		empty.addState("q");
+		empty.setStart("q");
+		empty.setFinal("q");
+		NFA a = new NFA();
+		a.addSigma('a');
+		a.addState("p");
+		a.addState("r");
+		a.setStart("p");
+		a.setFinal("r");
+		a.addTransition("p", Set.of("r"), 'a');
+		for (NFA result : new NFA[] {Operations.union(empty, a), Operations.concat(empty, a),
+				Operations.concat(a, empty), Operations.star(a), Operations.star(empty)}) {
+			assertFalse(result.accepts("e"));
+			assertFalse(result.accepts("ea"));
+			assertFalse(result.accepts("ae"));
+		}
+		assertTrue(Operations.union(empty, a).accepts(""));
+		assertTrue(Operations.concat(a, empty).accepts("a"));
+		assertTrue(Operations.star(a).accepts("aaa"));
+		System.out.println("operations input e done");
+	}
+}
@@ -0,0 +1,75 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.nfa.NFA;
+import fa.nfa.Optimization;
+import fa.nfa.Optimizer;
+
+public class OptimizerTest {
+
+	@Test
+	public void testReport() {
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		nfa.addSigma('b');
+		for (String name : new String[] {"s", "x", "y", "p", "q", "u", "d"}) {
+			nfa.addState(name);
+		}
+		nfa.setStart("s");
+		nfa.setFinal("p");
+		nfa.setFinal("q");
+		nfa.addTransition("s", Set.of("x"), 'e'); // s e x e y, an epsilon chain
+		nfa.addTransition("x", Set.of("y"), 'e');
+		nfa.addTransition("y", Set.of("p"), 'a');
+		nfa.addTransition("y", Set.of("q"), 'b');
+		nfa.addTransition("p", Set.of("p"), 'a'); // p and q are bisimilar
+		nfa.addTransition("q", Set.of("q"), 'a');
+		nfa.addTransition("s", Set.of("d"), 'b'); // d never reaches F
+		nfa.addTransition("u", Set.of("p"), 'a'); // u is never reached
+
+		Optimization result = Optimizer.optimize(nfa);
+		NFA small = result.nfa();
+		assertEquals(7, result.statesBefore());
+		assertEquals(2, result.epsilonRemoved());
+		assertEquals(1, result.unreachable()); // u
+		assertEquals(2, result.bypassed()); // x and y, only entered through 'e'
+		assertEquals(1, result.dead());
+		assertEquals(1, result.merged());
+		assertEquals(2, result.statesAfter());
+		assertEquals(8, result.transitionsBefore());
+		assertEquals(3, result.transitionsAfter());
+		assertNotNull(small.getState("p"));
+		assertNull(small.getState("q"));
+		for (String s : new String[] {"", "a", "b", "aa", "ba", "bb", "aaa", "ab"}) {
+			assertEquals(s, nfa.accepts(s), small.accepts(s));
+		}
+		assertEquals("removed 2 epsilon transitions, 1 unreachable, 2 bypassed and 1 dead states, merged 1 states: "
+				+ "7 -> 2 states, 8 -> 3 transitions", result.toString());
+		System.out.println("optimizer report done");
+	}
+
+	@Test
+	public void testRandomEquivalence() {
+		Random rnd = new Random(18);
+		for (int round = 0; round < 200; round++) {
+			NFA nfa = RandomNFA.build(rnd, 1 + rnd.nextInt(40), "ab", 0.06);
+			Optimization result = Optimizer.optimize(nfa);
+			NFA small = result.nfa();
+			assertTrue(result.statesAfter() <= result.statesBefore());
+			assertEquals(result.statesBefore() - result.unreachable() - result.bypassed() - result.dead()
+					- result.merged(), result.statesAfter());
+			for (int i = 0; i < 40; i++) {
+				String s = RandomNFA.input(rnd, "ab", 10);
+				assertEquals(s, nfa.accepts(s), small.accepts(s));
+			}
+			assertEquals(nfa.getSigma(), small.getSigma());
+		}
+		System.out.println("optimizer random done");
+	}
+}
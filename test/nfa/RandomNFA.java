@@ -0,0 +1,120 @@
+package test.nfa;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.Stack;
+
+import fa.nfa.NFA;
+import fa.nfa.NFAState;
+
+/**
+ * Builds random automata and runs the original set based simulation on
+ * them, so the faster engines can be checked against it. The simulation
+ * finds eclosures with its own search instead of NFA.eClosure, which shares
+ * its cache with the engines under test.
+ */
+public class RandomNFA {
+
+	/**
+	 * @param rnd - source of randomness
+	 * @param states - number of states
+	 * @param sigma - alphabet, must not contain 'e'
+	 * @param density - chance of any single transition existing
+	 * @return a random NFA with epsilon transitions
+	 */
+	public static NFA build(Random rnd, int states, String sigma, double density) {
+		NFA nfa = new NFA();
+		for (char c : sigma.toCharArray()) {
+			nfa.addSigma(c);
+		}
+		for (int i = 0; i < states; i++) {
+			nfa.addState("q" + i);
+		}
+		nfa.setStart("q0");
+		for (int i = 0; i < states; i++) {
+			if (rnd.nextInt(3) == 0) {
+				nfa.setFinal("q" + i);
+			}
+			for (char c : (sigma + "e").toCharArray()) {
+				for (int j = 0; j < states; j++) {
+					if (rnd.nextDouble() < (c == 'e' ? density / 2 : density)) {
+						nfa.addTransition("q" + i, Set.of("q" + j), c);
+					}
+				}
+			}
+		}
+		return nfa;
+	}
+
+	/**
+	 * @return a random string over the given characters
+	 */
+	public static String input(Random rnd, String chars, int maxLength) {
+		StringBuilder sb = new StringBuilder();
+		int n = rnd.nextInt(maxLength + 1);
+		for (int i = 0; i < n; i++) {
+			sb.append(chars.charAt(rnd.nextInt(chars.length())));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * plain depth first search over the 'e' edges
+	 */
+	private static Set<NFAState> closure(NFA nfa, NFAState s) {
+		Stack<NFAState> stack = new Stack<>();
+		Set<NFAState> closure = new LinkedHashSet<>();
+		stack.push(s);
+		while (!stack.isEmpty()) {
+			NFAState current = stack.pop();
+			if (closure.add(current)) {
+				stack.addAll(nfa.getToState(current, 'e'));
+			}
+		}
+		return closure;
+	}
+
+	/**
+	 * Runs the set based simulation and records every active set size
+	 * @return the active set after the last character
+	 */
+	private static Set<NFAState> simulate(NFA nfa, String s, int[] max) {
+		Set<NFAState> current = closure(nfa, nfa.getState("q0"));
+		max[0] = current.size();
+		for (char c : s.toCharArray()) {
+			Set<NFAState> next = new LinkedHashSet<>();
+			for (NFAState state : current) {
+				next.addAll(state.toStates(c));
+			}
+			current = new LinkedHashSet<>();
+			for (NFAState state : next) {
+				current.addAll(closure(nfa, state));
+			}
+			max[0] = Math.max(max[0], current.size());
+		}
+		return current;
+	}
+
+	/**
+	 * @return the active set after the last character
+	 */
+	public static Set<NFAState> finalStates(NFA nfa, String s) {
+		return simulate(nfa, s, new int[1]);
+	}
+
+	public static boolean accepts(NFA nfa, String s) {
+		for (NFAState state : simulate(nfa, s, new int[1])) {
+			if (nfa.isFinal(state.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public static int maxCopies(NFA nfa, String s) {
+		int[] max = new int[1];
+		simulate(nfa, s, max);
+		return max[0];
+	}
+}
@@ -0,0 +1,77 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import fa.nfa.NFA;
+import fa.nfa.Regex;
+
+public class RegexTest {
+
+	private static final String[] PATTERNS = {
+		"", "a", "ab", "a|b", "a*", "a+", "a?", "(ab)*", "(a|b)*abb", "a(b|c)+a?",
+		"[a-c]*b", "[abc][ab]?c*", "(a*b*)*", "((a|)b)+", "(a?b?c?)+c", "(a*)*", "(a+|b)?c",
+		"\\(a\\)|\\*", "x|y|z|xy|xyz",
+	};
+
+	@Test
+	public void testAgainstJavaRegex() {
+		Random rnd = new Random(17);
+		for (String pattern : PATTERNS) {
+			NFA nfa = Regex.compile(pattern);
+			Pattern expected = Pattern.compile(pattern);
+			for (int i = 0; i < 300; i++) {
+				String s = RandomNFA.input(rnd, "abcxyz()*", 8);
+				assertEquals(pattern + " on " + s, expected.matcher(s).matches(), nfa.accepts(s));
+			}
+		}
+		System.out.println("regex against java done");
+	}
+
+	@Test
+	public void testPrecompute() {
+		NFA nfa = Regex.compile("(a|b)*abb", true);
+		assertTrue(nfa.accepts("babb"));
+		assertFalse(nfa.accepts("abab"));
+		assertEquals(Set.of('a', 'b'), nfa.getSigma());
+		System.out.println("regex precompute done");
+	}
+
+	@Test
+	public void testKeywordUnion() {
+		Random rnd = new Random(170);
+		String[] keywords = new String[10000];
+		StringBuilder pattern = new StringBuilder();
+		for (int i = 0; i < keywords.length; i++) {
+			keywords[i] = RandomNFA.input(rnd, "abcdfghijklmnopqrstuvwxyz", 12) + i;
+			if (i > 0) {
+				pattern.append('|');
+			}
+			pattern.append(keywords[i]);
+		}
+		NFA nfa = Regex.compile(pattern.toString(), true);
+		for (int i = 0; i < keywords.length; i += 97) {
+			assertTrue(keywords[i], nfa.accepts(keywords[i]));
+			assertFalse(keywords[i], nfa.accepts(keywords[i] + "!"));
+		}
+		System.out.println("regex keywords done");
+	}
+
+	@Test
+	public void testMalformed() {
+		for (String pattern : new String[] {"(a", "a)", "*a", "[ab", "[]", "[^a]", "[b-a]", "a\\", "e", "[d-f]"}) {
+			try {
+				Regex.compile(pattern);
+				fail("compiled " + pattern);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+		System.out.println("regex malformed done");
+	}
+}
@@ -0,0 +1,127 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.nfa.NFA;
+import fa.nfa.ResultCache;
+
+public class ResultCacheTest {
+
+	/**
+	 * @return an NFA accepting strings over {a, b} ending in ab
+	 */
+	private NFA endsInAB() {
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		nfa.addSigma('b');
+		nfa.addState("p");
+		nfa.addState("q");
+		nfa.addState("r");
+		nfa.setStart("p");
+		nfa.setFinal("r");
+		nfa.addTransition("p", Set.of("p", "q"), 'a');
+		nfa.addTransition("p", Set.of("p"), 'b');
+		nfa.addTransition("q", Set.of("r"), 'b');
+		return nfa;
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		NFA nfa = endsInAB();
+		assertNull(nfa.getResultCache());
+		nfa.setResultCache(10);
+		ResultCache cache = nfa.getResultCache();
+		assertEquals(10, cache.capacity());
+		assertTrue(nfa.accepts("bab"));
+		assertTrue(nfa.accepts("bab"));
+		assertFalse(nfa.accepts("ba"));
+		assertEquals(2, nfa.maxCopies("bab"));
+		assertEquals(2, nfa.maxCopies("bab"));
+		assertEquals(2, cache.hits());
+		assertEquals(3, cache.misses());
+		assertEquals(2, cache.size());
+		assertEquals(0.4, cache.hitRate(), 1e-9);
+		assertEquals("2/10 entries, 2 hits, 3 misses, 0 evictions", cache.toString());
+
+		nfa.setResultCache(0);
+		assertNull(nfa.getResultCache());
+		assertTrue(nfa.accepts("bab"));
+		System.out.println("result cache hits done");
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() {
+		NFA nfa = endsInAB();
+		nfa.setResultCache(2);
+		ResultCache cache = nfa.getResultCache();
+		nfa.accepts("a");
+		nfa.accepts("b");
+		nfa.accepts("a"); // b is now the least recently used
+		nfa.accepts("ab");
+		assertEquals(1, cache.evictions());
+		assertEquals(2, cache.size());
+		nfa.accepts("a");
+		assertEquals(2, cache.hits());
+		nfa.accepts("b");
+		assertEquals(2, cache.hits());
+		assertEquals(4, cache.misses());
+		System.out.println("result cache eviction done");
+	}
+
+	@Test
+	public void testInvalidatedByChanges() {
+		NFA nfa = endsInAB();
+		nfa.setResultCache(10);
+		ResultCache cache = nfa.getResultCache();
+		assertFalse(nfa.accepts("aa"));
+		assertEquals(1, cache.size());
+
+		nfa.addTransition("q", Set.of("r"), 'a');
+		assertEquals(0, cache.size());
+		assertTrue(nfa.accepts("aa"));
+
+		nfa.addState("s");
+		assertEquals(0, cache.size());
+		assertEquals(3, nfa.maxCopies("aa"));
+		nfa.addTransition("r", Set.of("s"), 'e');
+		assertEquals(4, nfa.maxCopies("aa"));
+
+		assertFalse(nfa.accepts("b"));
+		nfa.setFinal("p");
+		assertTrue(nfa.accepts("b"));
+
+		assertTrue(nfa.accepts(""));
+		nfa.setStart("s");
+		assertFalse(nfa.accepts(""));
+		assertEquals(8, cache.misses());
+		assertEquals(0, cache.hits());
+		System.out.println("result cache invalidation done");
+	}
+
+	@Test
+	public void testRandom() {
+		Random rnd = new Random(25);
+		NFA nfa = RandomNFA.build(rnd, 40, "ab", 0.08);
+		nfa.setResultCache(16);
+		for (int i = 0; i < 2000; i++) {
+			String s = RandomNFA.input(rnd, "ab", 6);
+			assertEquals(s, RandomNFA.accepts(nfa, s), nfa.accepts(s));
+			assertEquals(s, RandomNFA.maxCopies(nfa, s), nfa.maxCopies(s));
+		}
+		ResultCache cache = nfa.getResultCache();
+		assertTrue(cache.hits() > 0);
+		assertTrue(cache.evictions() > 0);
+		assertEquals(4000, cache.hits() + cache.misses());
+		System.out.println("result cache random done");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeCapacity() {
+		new NFA().setResultCache(-1);
+	}
+}
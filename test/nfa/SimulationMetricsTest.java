@@ -0,0 +1,107 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import fa.nfa.MatchStats;
+import fa.nfa.NFA;
+import fa.nfa.SimulationMetrics;
+
+public class SimulationMetricsTest {
+
+	private NFA nfa() {
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addSigma('1');
+		nfa.addState("a");
+		nfa.addState("b");
+		nfa.setStart("a");
+		nfa.setFinal("b");
+		nfa.addTransition("a", Set.of("a"), '0');
+		nfa.addTransition("a", Set.of("b"), '1');
+		nfa.addTransition("b", Set.of("a"), 'e');
+		return nfa;
+	}
+
+	@Test
+	public void testStats() {
+		NFA nfa = nfa();
+		List<MatchStats> seen = new ArrayList<>();
+		nfa.setListener(seen::add);
+		assertTrue(nfa.accepts("101"));
+		MatchStats stats = seen.get(0);
+		assertTrue(stats.accepted());
+		assertEquals(3, stats.characters());
+		assertEquals(2, stats.peakActive());
+		// sizes 1, 2, 1, 2
+		assertEquals(6, stats.totalActive());
+		assertEquals(1.5, stats.averageActive(), 1e-9);
+		assertEquals(3, stats.transitions());
+		assertEquals(3, stats.closureExpansions());
+		assertFalse(stats.diedEarly());
+
+		assertEquals(1, nfa.maxCopies("2101"));
+		stats = seen.get(1);
+		assertTrue(stats.diedEarly());
+		assertEquals(1, stats.characters());
+
+		nfa.setListener(null);
+		nfa.accepts("1");
+		assertEquals(2, seen.size());
+		System.out.println("metrics stats done");
+	}
+
+	@Test
+	public void testInstrumentedAnswersUnchanged() {
+		Random rnd = new Random(13);
+		SimulationMetrics metrics = new SimulationMetrics();
+		for (int round = 0; round < 50; round++) {
+			NFA nfa = RandomNFA.build(rnd, 1 + rnd.nextInt(20), "01", 0.1);
+			for (int i = 0; i < 20; i++) {
+				String s = RandomNFA.input(rnd, "01e2", 20);
+				boolean accepts = nfa.accepts(s);
+				int copies = nfa.maxCopies(s);
+				nfa.setListener(metrics);
+				assertEquals(s, accepts, nfa.accepts(s));
+				assertEquals(s, copies, nfa.maxCopies(s));
+				nfa.setListener(null);
+			}
+		}
+		assertEquals(2000, metrics.getMatches());
+		System.out.println("metrics answers done");
+	}
+
+	@Test
+	public void testJmx() throws Exception {
+		NFA nfa = nfa();
+		SimulationMetrics metrics = new SimulationMetrics();
+		nfa.setListener(metrics);
+		nfa.accepts("101");
+		nfa.accepts("0");
+		nfa.accepts("21");
+		ObjectName name = metrics.register("test");
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertEquals(3L, server.getAttribute(name, "Matches"));
+			assertEquals(1L, server.getAttribute(name, "Accepted"));
+			assertEquals(5L, server.getAttribute(name, "CharactersProcessed"));
+			assertEquals(2, server.getAttribute(name, "PeakActiveStates"));
+			assertEquals(1L, server.getAttribute(name, "DeadStateExits"));
+			server.invoke(name, "reset", null, null);
+			assertEquals(0L, server.getAttribute(name, "Matches"));
+		} finally {
+			SimulationMetrics.unregister(name);
+		}
+		System.out.println("metrics jmx done");
+	}
+}
@@ -0,0 +1,98 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.nfa.CompiledNFA;
+import fa.nfa.NFA;
+import fa.nfa.SparseSetNFA;
+
+public class SparseSetNFATest {
+
+	@Test
+	public void testRandom() {
+		Random rnd = new Random(24);
+		for (int round = 0; round < 100; round++) {
+			NFA nfa = RandomNFA.build(rnd, 1 + rnd.nextInt(120), "ab", 0.02 + 0.05 * rnd.nextDouble());
+			CompiledNFA compiled = nfa.compile();
+			SparseSetNFA sparse = SparseSetNFA.of(nfa);
+			for (int i = 0; i < 30; i++) {
+				String s = RandomNFA.input(rnd, "abe#", 20);
+				assertEquals(s, compiled.accepts(s), sparse.accepts(s));
+				assertEquals(s, compiled.maxCopies(s), sparse.maxCopies(s));
+			}
+		}
+		System.out.println("sparse set random done");
+	}
+
+	@Test
+	public void testNoStart() {
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		nfa.addState("q");
+		nfa.setFinal("q");
+		SparseSetNFA sparse = SparseSetNFA.of(nfa);
+		assertFalse(sparse.accepts(""));
+		assertEquals(0, sparse.maxCopies("a"));
+		System.out.println("sparse set no start done");
+	}
+
+	@Test
+	public void testLargeFewActive() {
+		// a long cycle with a shortcut, at most two states are ever active
+		int n = 100000;
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		for (int i = 0; i < n; i++) {
+			nfa.addState("q" + i);
+		}
+		for (int i = 0; i < n; i++) {
+			nfa.addTransition("q" + i, Set.of("q" + (i + 1) % n), 'a');
+		}
+		nfa.addTransition("q0", Set.of("q2"), 'a');
+		nfa.setStart("q0");
+		nfa.setFinal("q" + (n - 1));
+		SparseSetNFA sparse = SparseSetNFA.of(nfa);
+		String input = "a".repeat(n - 2);
+		assertTrue(sparse.accepts(input));
+		assertFalse(sparse.accepts(input.substring(1, n - 3)));
+		assertEquals(2, sparse.maxCopies(input));
+		System.out.println("sparse set large done");
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		NFA nfa = RandomNFA.build(new Random(240), 80, "ab", 0.05);
+		SparseSetNFA sparse = SparseSetNFA.of(nfa);
+		String[] inputs = new String[200];
+		boolean[] expected = new boolean[inputs.length];
+		Random rnd = new Random(2400);
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = RandomNFA.input(rnd, "ab", 30);
+			expected[i] = nfa.compile().accepts(inputs[i]);
+		}
+		boolean[] ok = {true};
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int round = 0; round < 20; round++) {
+					for (int i = 0; i < inputs.length; i++) {
+						if (sparse.accepts(inputs[i]) != expected[i]) {
+							ok[0] = false;
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(ok[0]);
+		System.out.println("sparse set concurrent done");
+	}
+}
@@ -0,0 +1,86 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fa.nfa.NFA;
+import fa.nfa.StreamMatcher;
+
+public class StreamMatcherTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * strings over {a, a umlaut, euro sign} whose last symbol is the euro sign
+	 */
+	private NFA endsInEuro() {
+		NFA nfa = new NFA();
+		nfa.addSigma('a');
+		nfa.addSigma('\u00e4');
+		nfa.addSigma('\u20ac');
+		nfa.addState("p");
+		nfa.addState("q");
+		nfa.setStart("p");
+		nfa.setFinal("q");
+		nfa.addTransition("p", Set.of("p"), 'a');
+		nfa.addTransition("p", Set.of("p"), '\u00e4');
+		nfa.addTransition("p", Set.of("p", "q"), '\u20ac');
+		return nfa;
+	}
+
+	@Test
+	public void testAllSources() throws Exception {
+		NFA nfa = endsInEuro();
+		StreamMatcher matcher = new StreamMatcher(nfa);
+		Random rnd = new Random(10);
+		for (int i = 0; i < 60; i++) {
+			// long enough to cross the internal buffers, with multi byte characters
+			String s = RandomNFA.input(rnd, "a\u00e4\u20ac", i < 5 ? 50000 : 30);
+			boolean expected = nfa.accepts(s);
+			byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+			assertEquals(expected, matcher.accepts(s));
+			assertEquals(expected, matcher.accepts(new StringReader(s)));
+			assertEquals(expected, matcher.accepts(
+					Channels.newChannel(new ByteArrayInputStream(utf8)), StandardCharsets.UTF_8));
+			File file = folder.newFile();
+			Files.write(file.toPath(), utf8);
+			assertEquals(expected, matcher.accepts(file.toPath(), StandardCharsets.UTF_8));
+		}
+		System.out.println("stream matcher sources done");
+	}
+
+	@Test
+	public void testStopsWhenDead() throws Exception {
+		StreamMatcher matcher = new StreamMatcher(endsInEuro());
+		// an endless reader, only early termination lets this return
+		Reader endless = new Reader() {
+			@Override
+			public int read(char[] buf, int off, int len) {
+				for (int i = 0; i < len; i++) {
+					buf[off + i] = i == 100 ? 'x' : 'a';
+				}
+				return len;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		assertFalse(matcher.accepts(endless));
+		System.out.println("stream matcher early exit done");
+	}
+}
@@ -0,0 +1,105 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fa.dfa.DFA;
+import fa.dfa.DFATable;
+import fa.nfa.LazyDFA;
+import fa.nfa.NFA;
+import fa.nfa.SubsetConstruction;
+
+public class SubsetConstructionTest {
+
+	/**
+	 * (0|1)*1(0|1)^n, its smallest DFA has 2^(n+1) states
+	 */
+	static NFA blowup(int n) {
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addSigma('1');
+		for (int i = 0; i <= n + 1; i++) {
+			nfa.addState("s" + i);
+		}
+		nfa.setStart("s0");
+		nfa.setFinal("s" + (n + 1));
+		nfa.addTransition("s0", Set.of("s0"), '0');
+		nfa.addTransition("s0", Set.of("s0", "s1"), '1');
+		for (int i = 1; i <= n; i++) {
+			nfa.addTransition("s" + i, Set.of("s" + (i + 1)), '0');
+			nfa.addTransition("s" + i, Set.of("s" + (i + 1)), '1');
+		}
+		return nfa;
+	}
+
+	@Test
+	public void testNamedDFA() {
+		NFA nfa = new NFA();
+		nfa.addSigma('0');
+		nfa.addSigma('1');
+		nfa.addState("a");
+		nfa.addState("b");
+		nfa.setStart("a");
+		nfa.setFinal("b");
+		nfa.addTransition("a", Set.of("a"), '0');
+		nfa.addTransition("a", Set.of("b"), '1');
+		nfa.addTransition("b", Set.of("a"), 'e');
+
+		DFA dfa = SubsetConstruction.toDFA(nfa);
+		assertEquals(2, dfa.size());
+		assertTrue(dfa.isStart("[a]"));
+		assertTrue(dfa.isFinal("[a, b]"));
+		assertEquals(Set.of('0', '1'), dfa.getSigma());
+		for (String s : new String[] {"", "0", "1", "101", "00", "0110"}) {
+			assertEquals(s, nfa.accepts(s), dfa.accepts(s));
+		}
+		System.out.println("subset construction named DFA done");
+	}
+
+	@Test
+	public void testRandomEquivalence() {
+		Random rnd = new Random(3);
+		for (int round = 0; round < 200; round++) {
+			NFA nfa = RandomNFA.build(rnd, 1 + rnd.nextInt(12), "01#", 0.1);
+			DFATable table = SubsetConstruction.table(nfa);
+			DFA dfa = SubsetConstruction.toDFA(nfa);
+			LazyDFA lazy = new LazyDFA(nfa, 1 + rnd.nextInt(8));
+			for (int i = 0; i < 40; i++) {
+				String s = RandomNFA.input(rnd, "01#e2", 15);
+				boolean expected = nfa.accepts(s);
+				assertEquals(s, expected, table.accepts(s));
+				assertEquals(s, expected, lazy.accepts(s));
+				if (s.indexOf('e') < 0) {
+					assertEquals(s, expected, dfa.accepts(s));
+				}
+			}
+		}
+		System.out.println("subset construction equivalence done");
+	}
+
+	@Test
+	public void testBlowup() {
+		NFA nfa = blowup(10);
+		assertEquals(2048, SubsetConstruction.table(nfa).stateCount());
+		try {
+			SubsetConstruction.table(nfa, 100);
+			fail("state limit ignored");
+		} catch (IllegalStateException expected) {
+		}
+
+		// the lazy cache stays small and still answers correctly
+		LazyDFA lazy = new LazyDFA(nfa, 64);
+		Random rnd = new Random(5);
+		for (int i = 0; i < 500; i++) {
+			String s = RandomNFA.input(rnd, "01", 40);
+			assertEquals(s, nfa.accepts(s), lazy.accepts(s));
+			assertTrue(lazy.cachedStates() <= 64);
+		}
+		assertTrue(lazy.flushes() > 0);
+		System.out.println("subset construction blowup done");
+	}
+}